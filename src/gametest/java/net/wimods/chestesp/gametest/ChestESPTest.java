@@ -144,7 +144,12 @@ public final class ChestESPTest implements FabricClientGameTest
 		input.pressKey(GLFW.GLFW_KEY_ESCAPE);
 		
 		new ChestEspGroupTest(context, spContext).run();
+		new ChestEspCacheRegionTest(context, spContext).run();
+		new ChestEspBoxMergerTest(context, spContext).run();
+		new ChestEspNearestBoxesTest(context, spContext).run();
 		new ChestEspRenderingTest(context, spContext).run();
+		new ChestEspAllocationTest(context, spContext).run();
+		new ChestEspPerformanceTest(context, spContext).run();
 		
 		LOGGER.info("Checking for broken mixins");
 		MixinEnvironment.getCurrentEnvironment().audit();
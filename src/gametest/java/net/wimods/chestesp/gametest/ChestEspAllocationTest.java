@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.gametest;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Consumer;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import com.sun.management.ThreadMXBean;
+
+import net.fabricmc.fabric.api.client.gametest.v1.context.ClientGameTestContext;
+import net.fabricmc.fabric.api.client.gametest.v1.context.TestSingleplayerContext;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntitySpawnReason;
+import net.minecraft.world.entity.EntityTypes;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.wimods.chestesp.ChestEspGroupManager;
+import net.wimods.chestesp.ChestEspMod;
+import net.wimods.chestesp.ChestEspRenderLayers;
+import net.wimods.chestesp.ChestEspScanScheduler;
+import net.wimods.chestesp.ChestEspStats;
+import net.wimods.chestesp.ChestEspStyle;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.RenderUtils;
+import net.wimods.chestesp.util.WiModsBufferSource;
+
+public final class ChestEspAllocationTest extends SingleplayerTest
+{
+	private static final ThreadMXBean THREAD_MX_BEAN =
+		(ThreadMXBean)ManagementFactory.getThreadMXBean();
+	
+	// Not zero, because the code may not be fully JIT-compiled yet, but
+	// low enough that any per-box or per-chunk garbage would exceed it.
+	private static final int MAX_STEADY_STATE_BYTES = 1024;
+	private static final int STEADY_STATE_TICKS = 100;
+	
+	private static final Consumer<BlockEntity> NO_OP_BLOCK_ENTITY_VISITOR =
+		be -> {};
+	private static final Consumer<LevelChunk> BLOCK_ENTITY_SCANNER =
+		chunk -> chunk.getBlockEntities().values()
+			.forEach(NO_OP_BLOCK_ENTITY_VISITOR);
+	
+	public ChestEspAllocationTest(ClientGameTestContext context,
+		TestSingleplayerContext spContext)
+	{
+		super(context, spContext);
+	}
+	
+	@Override
+	protected void runImpl()
+	{
+		logger.info("Testing ChestESP allocations");
+		
+		testScanScheduler();
+		testTracers();
+		testEntityBoxes();
+		testSteadyState();
+	}
+	
+	/**
+	 * Checks the allocations that {@link ChestEspStats} measures around
+	 * {@link ChestEspMod#onUpdate()} and {@link ChestEspMod#onRender}, with
+	 * some containers on screen and nothing changing.
+	 */
+	private void testSteadyState()
+	{
+		setBlocksAndWait(blocks -> {
+			for(int x = -4; x <= 4; x += 2)
+			{
+				blocks.set(x, -59, 7, Blocks.CHEST);
+				blocks.set(x + 1, -59, 7, Blocks.BARREL);
+			}
+		});
+		ChestESPTest.withConfig(context, config -> {
+			config.style = ChestEspStyle.LINES_AND_BOXES;
+		});
+		
+		// let the scan finish and the JIT settle down
+		context.waitTicks(40);
+		
+		long updateBytes = 0;
+		long renderBytes = 0;
+		for(int i = 0; i < STEADY_STATE_TICKS; i++)
+		{
+			context.waitTick();
+			updateBytes += context
+				.computeOnClient(mc -> ChestEspStats.getUpdateAllocatedBytes());
+			renderBytes += context
+				.computeOnClient(mc -> ChestEspStats.getRenderAllocatedBytes());
+		}
+		
+		// Clean up
+		ChestESPTest.resetConfig(context);
+		setBlocksAndWait(
+			blocks -> blocks.fill(-4, -59, 7, 5, -59, 7, Blocks.AIR));
+		context.waitTick();// to trigger ChestEspMod.onUpdate()
+		
+		assertSteadyStateAllocations("onUpdate()", updateBytes);
+		assertSteadyStateAllocations("onRender()", renderBytes);
+	}
+	
+	private void assertSteadyStateAllocations(String name, long bytes)
+	{
+		long average = bytes / STEADY_STATE_TICKS;
+		logger.info("{} allocated {} bytes on average over {} ticks", name,
+			average, STEADY_STATE_TICKS);
+		
+		if(average > MAX_STEADY_STATE_BYTES)
+			throw new AssertionError(name + " allocated " + average
+				+ " bytes per call on average, which is more than the limit"
+				+ " of " + MAX_STEADY_STATE_BYTES + " bytes");
+	}
+	
+	/**
+	 * Runs complete scans of the loaded chunks, visiting every block entity
+	 * the same way that {@code ChestEspContainerIndex} does. The steady-state
+	 * test can't cover this, since the scan is long over by the time it
+	 * starts measuring.
+	 */
+	private void testScanScheduler()
+	{
+		ChestEspScanScheduler scheduler = new ChestEspScanScheduler();
+		
+		assertNoAllocations("ChestEspScanScheduler.tick()", () -> {
+			scheduler.start();
+			while(scheduler.isRunning())
+				scheduler.tick(BLOCK_ENTITY_SCANNER, 64);
+		});
+	}
+	
+	private void testEntityBoxes()
+	{
+		ChestEspGroupManager gm = new ChestEspGroupManager(
+			ChestEspMod.getInstance().getConfigHolder());
+		
+		// Entities that were never added to the level, moved a bit so that
+		// the interpolation has something to do.
+		context.runOnClient(mc -> {
+			for(int i = 0; i < 100; i++)
+			{
+				Entity cart = EntityTypes.CHEST_MINECART.create(mc.level,
+					EntitySpawnReason.COMMAND);
+				cart.setOldPos();
+				cart.setPos(i, -60, i / 2.0);
+				gm.chestCarts.add(cart);
+			}
+		});
+		
+		assertNoAllocations("ChestEspEntityGroup.updateBoxes()",
+			() -> gm.chestCarts.updateBoxes(0.5F));
+	}
+	
+	private void testTracers()
+	{
+		// Boxes all around the player, so that some of the tracers go
+		// through the screen and take the extra vertex path in drawLine().
+		BoxStore boxes = new BoxStore();
+		for(int x = -8; x <= 8; x += 4)
+			for(int z = -8; z <= 8; z += 4)
+				boxes.add(x, -60, z, x + 1, -59, z + 1);
+		
+		PoseStack matrixStack = new PoseStack();
+		WiModsBufferSource bufferSource =
+			context.computeOnClient(mc -> new WiModsBufferSource());
+		VertexConsumer buffer = context.computeOnClient(
+			mc -> bufferSource.getBuffer(ChestEspRenderLayers.getLines(false)));
+		
+		try
+		{
+			assertNoAllocations("RenderUtils.drawBoxTracers()",
+				() -> RenderUtils.drawBoxTracers(matrixStack, buffer, 1,
+					boxes, 0x80FF0000));
+			
+		}finally
+		{
+			context.runOnClient(mc -> bufferSource.close());
+		}
+	}
+	
+	/**
+	 * Runs the given task many times on the client thread and fails if it
+	 * allocates anything in steady state. The first runs are not measured so
+	 * that class loading and lazily created map views don't count.
+	 */
+	private void assertNoAllocations(String name, Runnable task)
+	{
+		int warmupRuns = 100;
+		int measuredRuns = 1000;
+		
+		long bytes = context.computeOnClient(mc -> {
+			for(int i = 0; i < warmupRuns; i++)
+				task.run();
+			
+			long before = getAllocatedBytes();
+			for(int i = 0; i < measuredRuns; i++)
+				task.run();
+			
+			return getAllocatedBytes() - before;
+		});
+		
+		logger.info("{} allocated {} bytes in {} runs", name, bytes,
+			measuredRuns);
+		
+		// Allow a few bytes of measurement noise, but nothing that could
+		// come from a single object per run.
+		if(bytes >= measuredRuns)
+			throw new AssertionError(name + " allocated " + bytes
+				+ " bytes in " + measuredRuns + " runs");
+	}
+	
+	private static long getAllocatedBytes()
+	{
+		return THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+	}
+}
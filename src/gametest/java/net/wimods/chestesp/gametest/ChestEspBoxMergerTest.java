@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.gametest;
+
+import java.util.List;
+
+import net.fabricmc.fabric.api.client.gametest.v1.context.ClientGameTestContext;
+import net.fabricmc.fabric.api.client.gametest.v1.context.TestSingleplayerContext;
+import net.minecraft.world.phys.AABB;
+import net.wimods.chestesp.util.BoxMerger;
+import net.wimods.chestesp.util.BoxStore;
+
+/**
+ * Checks that {@link BoxMerger} only merges boxes that share a whole face,
+ * and that the merged boxes cover exactly the same space as the original
+ * ones.
+ */
+public final class ChestEspBoxMergerTest extends SingleplayerTest
+{
+	private static final double INSET = 1 / 16.0;
+	
+	public ChestEspBoxMergerTest(ClientGameTestContext context,
+		TestSingleplayerContext spContext)
+	{
+		super(context, spContext);
+	}
+	
+	@Override
+	protected void runImpl()
+	{
+		logger.info("Testing ChestESP box merging");
+		
+		assertMerged("empty", List.of(), List.of());
+		assertMerged("row along X",
+			List.of(block(0, 0, 0), block(1, 0, 0), block(2, 0, 0)),
+			List.of(new AABB(0, 0, 0, 3, 1, 1)));
+		assertMerged("2x2x2 cube",
+			List.of(block(0, 0, 0), block(1, 0, 0), block(0, 0, 1),
+				block(1, 0, 1), block(0, 1, 0), block(1, 1, 0), block(0, 1, 1),
+				block(1, 1, 1)),
+			List.of(new AABB(0, 0, 0, 2, 2, 2)));
+		
+		// out of order and on the negative side of 0
+		assertMerged("shuffled row",
+			List.of(block(-1, 5, -3), block(-3, 5, -3), block(-2, 5, -3)),
+			List.of(new AABB(-3, 5, -3, 0, 6, -2)));
+		
+		assertMerged("gap",
+			List.of(block(0, 0, 0), block(2, 0, 0)),
+			List.of(block(0, 0, 0), block(2, 0, 0)));
+		assertMerged("diagonal",
+			List.of(block(0, 0, 0), block(1, 0, 1)),
+			List.of(block(0, 0, 0), block(1, 0, 1)));
+		
+		// An L shape can't be one box. Rows are merged first, so the result
+		// is the long row plus the single block.
+		assertMerged("L shape",
+			List.of(block(0, 0, 0), block(1, 0, 0), block(0, 0, 1)),
+			List.of(new AABB(0, 0, 0, 2, 1, 1), block(0, 0, 1)));
+		
+		// chests are inset from the block edges, so they never touch
+		assertMerged("chests",
+			List.of(chest(0, 0, 0), chest(1, 0, 0)),
+			List.of(chest(0, 0, 0), chest(1, 0, 0)));
+		
+		// touching, but with different heights
+		AABB slab = new AABB(1, 0, 0, 2, 0.5, 1);
+		assertMerged("different heights", List.of(block(0, 0, 0), slab),
+			List.of(block(0, 0, 0), slab));
+		
+		// duplicates overlap instead of touching, so they aren't merged
+		assertMerged("duplicates", List.of(block(0, 0, 0), block(0, 0, 0)),
+			List.of(block(0, 0, 0), block(0, 0, 0)));
+	}
+	
+	/**
+	 * The order of the merged boxes doesn't matter, but their number does.
+	 */
+	private void assertMerged(String name, List<AABB> input,
+		List<AABB> expected)
+	{
+		// BoxMerger has scratch state that the render thread also uses
+		List<AABB> actual = context.computeOnClient(mc -> {
+			BoxStore src = new BoxStore();
+			input.forEach(src::add);
+			BoxStore dest = new BoxStore();
+			BoxMerger.merge(src, dest);
+			return List.copyOf(dest.asList());
+		});
+		
+		if(actual.size() != expected.size() || !actual.containsAll(expected)
+			|| !expected.containsAll(actual))
+			throw new AssertionError("Merging " + name + ": expected "
+				+ expected + " but got " + actual);
+	}
+	
+	private static AABB block(int x, int y, int z)
+	{
+		return new AABB(x, y, z, x + 1, y + 1, z + 1);
+	}
+	
+	private static AABB chest(int x, int y, int z)
+	{
+		return new AABB(x + INSET, y, z + INSET, x + 1 - INSET, y + 1 - INSET,
+			z + 1 - INSET);
+	}
+}
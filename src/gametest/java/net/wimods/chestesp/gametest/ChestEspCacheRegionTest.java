@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.gametest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import net.fabricmc.fabric.api.client.gametest.v1.context.ClientGameTestContext;
+import net.fabricmc.fabric.api.client.gametest.v1.context.TestSingleplayerContext;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.AABB;
+import net.wimods.chestesp.ChestEspCacheRegion;
+
+/**
+ * Checks that containers survive being encoded, written to a region file and
+ * read back, since that file format has to stay readable across versions.
+ */
+public final class ChestEspCacheRegionTest extends SingleplayerTest
+{
+	private static final List<String> GROUP_NAMES =
+		List.of("chests", "barrels", "shulker_boxes");
+	
+	public ChestEspCacheRegionTest(ClientGameTestContext context,
+		TestSingleplayerContext spContext)
+	{
+		super(context, spContext);
+	}
+	
+	@Override
+	protected void runImpl()
+	{
+		logger.info("Testing ChestESP cache regions");
+		testEncodeDecode();
+		
+		try
+		{
+			testRoundTrip();
+			testMissingFile();
+			
+		}catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private void testEncodeDecode()
+	{
+		// single chest, double chest and full block, on both sides of 0
+		BlockPos[] positions = {new BlockPos(3, -59, 7),
+			new BlockPos(-1, 64, -1), new BlockPos(-30000, 319, 29999)};
+		for(BlockPos pos : positions)
+		{
+			assertRoundTrip(1, new AABB(pos).deflate(1 / 16.0), pos);
+			assertRoundTrip(0,
+				new AABB(pos).deflate(1 / 16.0).expandTowards(1, 0, 0), pos);
+			assertRoundTrip(2, new AABB(pos), pos);
+		}
+	}
+	
+	private void assertRoundTrip(int groupId, AABB box, BlockPos pos)
+	{
+		long entry = ChestEspCacheRegion.encode(groupId, box, pos.asLong());
+		AABB decoded = ChestEspCacheRegion.decodeBox(entry, pos.asLong());
+		if(!decoded.equals(box))
+			throw new AssertionError(
+				"Expected " + box + " at " + pos + " but got " + decoded);
+		
+		int decodedGroupId = ChestEspCacheRegion.getGroupId(entry);
+		if(decodedGroupId != groupId)
+			throw new AssertionError(
+				"Expected group " + groupId + " but got " + decodedGroupId);
+	}
+	
+	private void testRoundTrip() throws IOException
+	{
+		BlockPos chestPos = new BlockPos(3, -59, 7);
+		BlockPos barrelPos = new BlockPos(20, -59, -5);
+		long chestChunk = ChunkPos.asLong(chestPos);
+		long barrelChunk = ChunkPos.asLong(barrelPos);
+		long[] chests = {chestPos.asLong(), ChestEspCacheRegion.encode(0,
+			new AABB(chestPos).deflate(1 / 16.0), chestPos.asLong())};
+		long[] barrels = {barrelPos.asLong(), ChestEspCacheRegion.encode(1,
+			new AABB(barrelPos), barrelPos.asLong())};
+		
+		ChestEspCacheRegion region = new ChestEspCacheRegion();
+		region.put(chestChunk, chests);
+		region.put(barrelChunk, barrels);
+		if(!region.isDirty())
+			throw new AssertionError("Region not dirty after changes");
+		
+		Path path = Files.createTempFile("chestesp", ".bin");
+		try
+		{
+			Files.write(path, region.write(GROUP_NAMES));
+			if(region.isDirty())
+				throw new AssertionError("Region still dirty after writing");
+			
+			ChestEspCacheRegion read =
+				ChestEspCacheRegion.read(path, GROUP_NAMES);
+			assertEntries(read, chestChunk, chests);
+			assertEntries(read, barrelChunk, barrels);
+			
+			// Groups that are reordered must keep their containers, and
+			// groups that no longer exist must drop theirs.
+			List<String> changedNames = List.of("barrels", "shulker_boxes");
+			ChestEspCacheRegion changed =
+				ChestEspCacheRegion.read(path, changedNames);
+			assertEntries(changed, chestChunk, new long[0]);
+			assertEntries(changed, barrelChunk, new long[]{barrels[0],
+				ChestEspCacheRegion.encode(0, new AABB(barrelPos),
+					barrelPos.asLong())});
+			
+		}finally
+		{
+			Files.delete(path);
+		}
+	}
+	
+	private void testMissingFile() throws IOException
+	{
+		Path path = Files.createTempDirectory("chestesp").resolve("r.0.0.bin");
+		ChestEspCacheRegion region =
+			ChestEspCacheRegion.read(path, GROUP_NAMES);
+		if(region.iterator().hasNext())
+			throw new AssertionError("Missing file was not read as empty");
+		
+		Files.delete(path.getParent());
+	}
+	
+	private void assertEntries(ChestEspCacheRegion region, long chunkKey,
+		long[] expected)
+	{
+		long[] actual = region.get(chunkKey);
+		if(!Arrays.equals(actual, expected))
+			throw new AssertionError("Expected " + Arrays.toString(expected)
+				+ " in chunk " + chunkKey + " but got "
+				+ Arrays.toString(actual));
+	}
+}
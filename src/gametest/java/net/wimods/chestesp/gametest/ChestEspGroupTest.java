@@ -86,6 +86,12 @@ public final class ChestEspGroupTest extends SingleplayerTest
 			if(group != expectedGroup && group.matches(blockEntity))
 				throw new AssertionError(blockEntity.getClass().getName()
 					+ " unexpectedly matched group " + group.getName());
+		
+		// check twice to cover both the lookup and the cache hit
+		for(int i = 0; i < 2; i++)
+			if(gm.getBlockGroup(blockEntity) != expectedGroup)
+				throw new AssertionError(blockEntity.getClass().getName()
+					+ " was not dispatched to group " + expectedGroup.getName());
 	}
 	
 	private void assertMatchesOnly(ChestEspGroupManager gm,
@@ -104,6 +110,12 @@ public final class ChestEspGroupTest extends SingleplayerTest
 			if(group != expectedGroup && group.matches(entity))
 				throw new AssertionError(entity.getClass().getName()
 					+ " unexpectedly matched group " + group.getName());
+		
+		// check twice to cover both the lookup and the cache hit
+		for(int i = 0; i < 2; i++)
+			if(gm.getEntityGroup(entity) != expectedGroup)
+				throw new AssertionError(entity.getClass().getName()
+					+ " was not dispatched to group " + expectedGroup.getName());
 	}
 	
 	private Block getLootrBlock(String path)
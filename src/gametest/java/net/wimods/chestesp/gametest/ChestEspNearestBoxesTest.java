@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.gametest;
+
+import java.util.Arrays;
+
+import net.fabricmc.fabric.api.client.gametest.v1.context.ClientGameTestContext;
+import net.fabricmc.fabric.api.client.gametest.v1.context.TestSingleplayerContext;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.NearestBoxes;
+
+/**
+ * Checks that {@link NearestBoxes} keeps exactly the closest boxes, including
+ * when several boxes are at the cut-off distance and when the limit is
+ * shared by multiple stores.
+ *
+ * <p>
+ * All boxes are unit cubes on the positive X axis and distances are measured
+ * from the origin, so each box is identified by its distance.
+ */
+public final class ChestEspNearestBoxesTest extends SingleplayerTest
+{
+	public ChestEspNearestBoxesTest(ClientGameTestContext context,
+		TestSingleplayerContext spContext)
+	{
+		super(context, spContext);
+	}
+	
+	@Override
+	protected void runImpl()
+	{
+		logger.info("Testing ChestESP nearest box limits");
+		
+		// under, at and over the limit
+		assertLimited("under limit", 5, new int[][]{{3, 1, 2}},
+			new int[][]{{1, 2, 3}}, 0);
+		assertLimited("at limit", 3, new int[][]{{3, 1, 2}},
+			new int[][]{{1, 2, 3}}, 0);
+		assertLimited("over limit", 3,
+			new int[][]{{9, 4, 1, 7, 3, 8, 2, 6, 5, 10}},
+			new int[][]{{1, 2, 3}}, 7);
+		assertLimited("zero", 0, new int[][]{{1, 2}}, new int[][]{{}}, 2);
+		assertLimited("unlimited", NearestBoxes.UNLIMITED,
+			new int[][]{{1, 2}}, new int[][]{{1, 2}}, 0);
+		
+		// Three boxes are tied at the cut-off, which is the top of the heap,
+		// but there is only room for two of them.
+		assertLimited("ties", 3, new int[][]{{2, 3, 2, 1, 2}},
+			new int[][]{{1, 2, 2}}, 2);
+		assertLimited("all tied", 2, new int[][]{{4, 4, 4, 4}},
+			new int[][]{{4, 4}}, 2);
+		
+		// the limit applies to all stores together
+		assertLimited("across stores", 3,
+			new int[][]{{5, 1, 4}, {2, 6, 3}, {}},
+			new int[][]{{1}, {2, 3}, {}}, 3);
+	}
+	
+	/**
+	 * Fills one store per row of {@code distances}, limits them together and
+	 * checks which distances are left in each store. Which of the tied boxes
+	 * survive isn't specified, so ties are only checked within one store.
+	 */
+	private void assertLimited(String name, int limit, int[][] distances,
+		int[][] expected, int expectedRemoved)
+	{
+		// NearestBoxes has scratch state that the render thread also uses
+		int[] removed = new int[1];
+		int[][] actual = context.computeOnClient(mc -> {
+			BoxStore[] stores = new BoxStore[distances.length];
+			for(int i = 0; i < distances.length; i++)
+			{
+				stores[i] = new BoxStore();
+				for(int d : distances[i])
+					stores[i].add(d - 0.5, -0.5, -0.5, d + 0.5, 0.5, 0.5);
+			}
+			
+			removed[0] = stores.length == 1
+				? NearestBoxes.limit(stores[0], 0, 0, 0, limit)
+				: NearestBoxes.limitTotal(stores, 0, 0, 0, limit);
+			
+			int[][] left = new int[stores.length][];
+			for(int i = 0; i < stores.length; i++)
+			{
+				left[i] = new int[stores[i].size()];
+				for(int j = 0; j < left[i].length; j++)
+					left[i][j] = (int)stores[i].getCenterX(j);
+				Arrays.sort(left[i]);
+			}
+			return left;
+		});
+		
+		if(!Arrays.deepEquals(actual, expected))
+			throw new AssertionError("Limiting " + name + ": expected "
+				+ Arrays.deepToString(expected) + " but got "
+				+ Arrays.deepToString(actual));
+		
+		if(removed[0] != expectedRemoved)
+			throw new AssertionError("Limiting " + name + ": expected "
+				+ expectedRemoved + " removed boxes but got " + removed[0]);
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.gametest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import net.fabricmc.fabric.api.client.gametest.v1.context.ClientGameTestContext;
+import net.fabricmc.fabric.api.client.gametest.v1.context.TestSingleplayerContext;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntitySpawnReason;
+import net.minecraft.world.entity.EntityTypes;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.wimods.chestesp.ChestEspStats;
+import net.wimods.chestesp.ChestEspStyle;
+
+/**
+ * Fills the loaded area with tens of thousands of containers and measures
+ * how long {@code onUpdate()} and {@code onRender()} take once ChestESP has
+ * found all of them. The results are written to
+ * {@code chestesp_performance.json} in the run directory.
+ *
+ * <p>
+ * Wall-clock times depend too much on the machine to fail a normal test run,
+ * so the average times are only checked against the budgets with
+ * {@code -Dchestesp.perf.assert=true}. The budgets can be changed with
+ * {@code -Dchestesp.perf.updateBudgetMs} and
+ * {@code -Dchestesp.perf.renderBudgetMs}. The defaults are generous enough
+ * for CI runners with software rendering, where the check is turned on.
+ * Gradle forwards these from {@code -PperfAssert},
+ * {@code -PperfUpdateBudgetMs} and {@code -PperfRenderBudgetMs}.
+ */
+public final class ChestEspPerformanceTest extends SingleplayerTest
+{
+	private static final boolean ASSERT_BUDGETS =
+		Boolean.getBoolean("chestesp.perf.assert");
+	private static final double UPDATE_BUDGET_MS =
+		getBudget("chestesp.perf.updateBudgetMs", 5);
+	private static final double RENDER_BUDGET_MS =
+		getBudget("chestesp.perf.renderBudgetMs", 15);
+	
+	private static final int TARGET_CONTAINERS = 30000;
+	private static final int CARTS = 256;
+	private static final int MEASURED_TICKS = 200;
+	
+	// above the test background, so that cleanup only has to place air
+	private static final int BOTTOM_Y = -40;
+	private static final Block[] CONTAINERS =
+		{Blocks.CHEST, Blocks.BARREL, Blocks.SHULKER_BOX};
+	
+	public ChestEspPerformanceTest(ClientGameTestContext context,
+		TestSingleplayerContext spContext)
+	{
+		super(context, spContext);
+	}
+	
+	@Override
+	protected void runImpl()
+	{
+		logger.info("Testing ChestESP performance");
+		
+		// stay one chunk inside the render distance, so that every block
+		// actually reaches the client
+		int radius = context.computeOnClient(mc -> Math
+			.clamp(mc.options.getEffectiveRenderDistance() - 1, 1, 3) * 16);
+		int side = radius * 2;
+		int layers = Math.min(64, Math.ceilDiv(TARGET_CONTAINERS, side * side));
+		int topY = BOTTOM_Y + layers - 1;
+		int containers = side * side * layers;
+		
+		logger.info("Placing {} containers and {} chest carts", containers,
+			CARTS);
+		setBlocksAndWait(blocks -> {
+			for(int y = BOTTOM_Y; y <= topY; y++)
+				for(int x = -radius; x < radius; x++)
+					for(int z = -radius; z < radius; z++)
+						blocks.set(x, y, z,
+							CONTAINERS[Math.floorMod(x + y + z, 3)]);
+		});
+		List<Entity> carts = spawnCarts(radius, topY + 1);
+		
+		ChestESPTest.withConfig(context, config -> {
+			config.style = ChestEspStyle.LINES_AND_BOXES;
+			// draw every single container, as the worst case
+			config.cluster_containers = false;
+		});
+		
+		// Wait until every container has a tracer, i.e. the initial scan is
+		// done and everything is being rendered.
+		int expected = containers + CARTS;
+		context.waitFor(mc -> ChestEspStats.getTracers() >= expected, 1200);
+		
+		long[] updateNanos = new long[MEASURED_TICKS];
+		long[] renderNanos = new long[MEASURED_TICKS];
+		for(int i = 0; i < MEASURED_TICKS; i++)
+		{
+			context.waitTick();
+			long[] sample = context.computeOnClient(
+				mc -> new long[]{ChestEspStats.getUpdateNanos(),
+					ChestEspStats.getRenderNanos()});
+			updateNanos[i] = sample[0];
+			renderNanos[i] = sample[1];
+		}
+		
+		JsonObject results = new JsonObject();
+		results.addProperty("containers", containers);
+		results.addProperty("chest_carts", CARTS);
+		results.addProperty("ticks", MEASURED_TICKS);
+		results.add("update", summarize(updateNanos, UPDATE_BUDGET_MS));
+		results.add("render", summarize(renderNanos, RENDER_BUDGET_MS));
+		writeResults(results);
+		
+		// Clean up
+		ChestESPTest.resetConfig(context);
+		removeCarts(carts);
+		setBlocksAndWait(blocks -> blocks.fill(-radius, BOTTOM_Y, -radius,
+			radius - 1, topY, radius - 1, Blocks.AIR));
+		context.waitTick();// to trigger ChestEspMod.onUpdate()
+		
+		if(!ASSERT_BUDGETS)
+		{
+			logger.info("Not checking the performance budgets, since"
+				+ " -Dchestesp.perf.assert=true is not set");
+			return;
+		}
+		
+		assertWithinBudget("onUpdate()", results.getAsJsonObject("update"));
+		assertWithinBudget("onRender()", results.getAsJsonObject("render"));
+	}
+	
+	private List<Entity> spawnCarts(int radius, int y)
+	{
+		List<Entity> carts = server.computeOnServer(mc -> {
+			ArrayList<Entity> spawned = new ArrayList<>();
+			for(int i = 0; i < CARTS; i++)
+			{
+				Entity cart = Objects.requireNonNull(EntityTypes.CHEST_MINECART
+					.create(mc.overworld(), EntitySpawnReason.COMMAND));
+				int x = i % 16 * radius / 8 - radius;
+				int z = i / 16 * radius / 8 - radius;
+				cart.snapTo(x + 0.5, y, z + 0.5, 0, 0);
+				cart.setNoGravity(true);
+				mc.overworld().addFreshEntity(cart);
+				spawned.add(cart);
+			}
+			return spawned;
+		});
+		
+		context.waitFor(mc -> carts.stream()
+			.allMatch(cart -> mc.level.getEntity(cart.getId()) != null));
+		return carts;
+	}
+	
+	private void removeCarts(List<Entity> carts)
+	{
+		List<Integer> entityIds = carts.stream().map(Entity::getId).toList();
+		server.runOnServer(mc -> carts.forEach(Entity::discard));
+		context.waitFor(mc -> entityIds.stream()
+			.allMatch(id -> mc.level.getEntity(id) == null));
+	}
+	
+	private static JsonObject summarize(long[] nanos, double budgetMs)
+	{
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		
+		JsonObject json = new JsonObject();
+		json.addProperty("mean_ms",
+			Arrays.stream(sorted).average().orElse(0) / 1e6);
+		json.addProperty("p50_ms", percentile(sorted, 0.5) / 1e6);
+		json.addProperty("p95_ms", percentile(sorted, 0.95) / 1e6);
+		json.addProperty("max_ms", sorted[sorted.length - 1] / 1e6);
+		json.addProperty("budget_ms", budgetMs);
+		return json;
+	}
+	
+	private static long percentile(long[] sorted, double p)
+	{
+		int index = (int)Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, index)];
+	}
+	
+	private void writeResults(JsonObject results)
+	{
+		String json = new GsonBuilder().setPrettyPrinting().create()
+			.toJson(results);
+		logger.info("ChestESP performance results:\n{}", json);
+		
+		Path path = FabricLoader.getInstance().getGameDir()
+			.resolve("chestesp_performance.json");
+		try
+		{
+			Files.writeString(path, json);
+			
+		}catch(IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static void assertWithinBudget(String name, JsonObject summary)
+	{
+		double mean = summary.get("mean_ms").getAsDouble();
+		double budget = summary.get("budget_ms").getAsDouble();
+		if(mean > budget)
+			throw new AssertionError(name + " took " + mean
+				+ " ms on average, which is over the budget of " + budget
+				+ " ms");
+	}
+	
+	private static double getBudget(String property, double defaultMs)
+	{
+		String value = System.getProperty(property);
+		return value == null ? defaultMs : Double.parseDouble(value);
+	}
+}
@@ -23,7 +23,10 @@ import net.minecraft.world.level.block.SlabBlock;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.properties.ChestType;
 import net.minecraft.world.level.block.state.properties.SlabType;
+import net.wimods.chestesp.ChestEspGroupManager;
+import net.wimods.chestesp.ChestEspMod;
 import net.wimods.chestesp.ChestEspStyle;
+import net.wimods.chestesp.util.BoxView;
 
 public final class ChestEspRenderingTest extends SingleplayerTest
 {
@@ -72,12 +75,44 @@ public final class ChestEspRenderingTest extends SingleplayerTest
 		
 		// Clean up
 		ChestESPTest.resetConfig(context);
+		testBrokenChest();
 		removeVehicles(vehicles);
 		setBlocksAndWait(
 			blocks -> blocks.fill(-5, -59, 6, 5, -53, 7, Blocks.AIR));
 		context.waitTick();// to trigger ChestEspMod.onUpdate()
 	}
 	
+	/**
+	 * Breaks the single chest from the top row and checks that its box goes
+	 * away with it, instead of staying behind until the chunk is reloaded.
+	 */
+	private void testBrokenChest()
+	{
+		logger.info("Testing that broken chests lose their box");
+		if(!hasNormalChestBox(5, -53, 7))
+			throw new AssertionError("Chest at 5, -53, 7 has no box");
+		
+		setBlocksAndWait(blocks -> blocks.set(5, -53, 7, Blocks.AIR));
+		context.waitTick();// to trigger ChestEspMod.onUpdate()
+		
+		if(hasNormalChestBox(5, -53, 7))
+			throw new AssertionError(
+				"Chest at 5, -53, 7 still has a box after being broken");
+	}
+	
+	private boolean hasNormalChestBox(int x, int y, int z)
+	{
+		return context.computeOnClient(mc -> {
+			ChestEspGroupManager groups = ChestEspMod.getInstance().getGroups();
+			BoxView boxes = groups.normalChests.getBoxStore();
+			for(int i = 0; i < boxes.size(); i++)
+				if(boxes.get(i).contains(x + 0.5, y + 0.5, z + 0.5))
+					return true;
+			
+			return false;
+		});
+	}
+	
 	private List<Entity> buildTestRig()
 	{
 		BlockState topSlab = Blocks.SMOOTH_STONE_SLAB.defaultBlockState()
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.benchmark;
+
+import me.shedaniel.autoconfig.ConfigHolder;
+import me.shedaniel.autoconfig.event.ConfigSerializeEvent;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.wimods.chestesp.ChestEspConfig;
+
+/**
+ * Shared setup for the benchmarks. None of them start the game, so they only
+ * bootstrap the registries and use a default config that is never saved.
+ */
+public enum BenchmarkSetup
+{
+	;
+	
+	private static boolean bootstrapped;
+	
+	public static synchronized void bootstrap()
+	{
+		if(bootstrapped)
+			return;
+		
+		SharedConstants.tryDetectVersion();
+		Bootstrap.bootStrap();
+		bootstrapped = true;
+	}
+	
+	public static ConfigHolder<ChestEspConfig> createConfigHolder()
+	{
+		return new BenchmarkConfigHolder();
+	}
+	
+	/**
+	 * Holds a config in memory only. Saving and loading do nothing, so the
+	 * benchmarks can't touch the real config file.
+	 */
+	private static final class BenchmarkConfigHolder
+		implements ConfigHolder<ChestEspConfig>
+	{
+		private ChestEspConfig config = new ChestEspConfig();
+		
+		@Override
+		public Class<ChestEspConfig> getConfigClass()
+		{
+			return ChestEspConfig.class;
+		}
+		
+		@Override
+		public void save()
+		{
+			// never saved
+		}
+		
+		@Override
+		public boolean load()
+		{
+			return false;
+		}
+		
+		@Override
+		public ChestEspConfig getConfig()
+		{
+			return config;
+		}
+		
+		@Override
+		public void setConfig(ChestEspConfig config)
+		{
+			this.config = config;
+		}
+		
+		@Override
+		public void resetToDefault()
+		{
+			config = new ChestEspConfig();
+		}
+		
+		@Override
+		public void registerLoadListener(
+			ConfigSerializeEvent.Load<ChestEspConfig> load)
+		{
+			// never loaded, so nothing to listen to
+		}
+		
+		@Override
+		public void registerSaveListener(
+			ConfigSerializeEvent.Save<ChestEspConfig> save)
+		{
+			// never saved, so nothing to listen to
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.EntityBlock;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.wimods.chestesp.ChestEspBlockGroup;
+import net.wimods.chestesp.ChestEspGroupManager;
+
+/**
+ * Compares the cached group lookup in
+ * {@link ChestEspGroupManager#getBlockGroup(BlockEntity)} with asking every
+ * group whether it matches, over a fixed mix of containers and other block
+ * entities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockMatchingBenchmark
+{
+	private static final List<Block> BLOCKS = List.of(Blocks.CHEST,
+		Blocks.TRAPPED_CHEST, Blocks.ENDER_CHEST, Blocks.BARREL,
+		Blocks.DECORATED_POT, Blocks.SHULKER_BOX, Blocks.HOPPER, Blocks.DROPPER,
+		Blocks.DISPENSER, Blocks.CRAFTER, Blocks.FURNACE, Blocks.BLAST_FURNACE,
+		Blocks.SMOKER, Blocks.OAK_SIGN, Blocks.SPAWNER, Blocks.BEEHIVE,
+		Blocks.RED_BED, Blocks.CAMPFIRE, Blocks.BELL, Blocks.LECTERN);
+	
+	@Param({"4096"})
+	public int blockEntities;
+	
+	private ChestEspGroupManager groups;
+	private BlockEntity[] mix;
+	
+	@Setup
+	public void setup()
+	{
+		BenchmarkSetup.bootstrap();
+		groups = new ChestEspGroupManager(BenchmarkSetup.createConfigHolder());
+		
+		// fixed seed, so that every run sees the same mix
+		Random random = new Random(42);
+		mix = new BlockEntity[blockEntities];
+		for(int i = 0; i < mix.length; i++)
+		{
+			Block block = BLOCKS.get(random.nextInt(BLOCKS.size()));
+			mix[i] = ((EntityBlock)block).newBlockEntity(BlockPos.ZERO,
+				block.defaultBlockState());
+		}
+	}
+	
+	@Benchmark
+	public int dispatch()
+	{
+		int matched = 0;
+		for(BlockEntity be : mix)
+			if(groups.getBlockGroup(be) != null)
+				matched++;
+		
+		return matched;
+	}
+	
+	@Benchmark
+	public int linearMatch()
+	{
+		int matched = 0;
+		for(BlockEntity be : mix)
+			for(ChestEspBlockGroup group : groups.blockGroups)
+				if(group.matches(be))
+				{
+					matched++;
+					break;
+				}
+		
+		return matched;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.benchmark;
+
+import com.mojang.blaze3d.vertex.VertexConsumer;
+
+/**
+ * A {@link VertexConsumer} that only counts what it receives, so that the
+ * benchmarks measure vertex emission without any buffer behind it.
+ */
+public final class CountingVertexConsumer implements VertexConsumer
+{
+	public int vertices;
+	public float checksum;
+	
+	public void reset()
+	{
+		vertices = 0;
+		checksum = 0;
+	}
+	
+	@Override
+	public VertexConsumer addVertex(float x, float y, float z)
+	{
+		vertices++;
+		checksum += x + y + z;
+		return this;
+	}
+	
+	@Override
+	public VertexConsumer setColor(int red, int green, int blue, int alpha)
+	{
+		checksum += red + green + blue + alpha;
+		return this;
+	}
+	
+	@Override
+	public VertexConsumer setColor(int argb)
+	{
+		checksum += argb;
+		return this;
+	}
+	
+	@Override
+	public VertexConsumer setUv(float u, float v)
+	{
+		return this;
+	}
+	
+	@Override
+	public VertexConsumer setUv1(int u, int v)
+	{
+		return this;
+	}
+	
+	@Override
+	public VertexConsumer setUv2(int u, int v)
+	{
+		return this;
+	}
+	
+	@Override
+	public VertexConsumer setNormal(float x, float y, float z)
+	{
+		checksum += x + y + z;
+		return this;
+	}
+	
+	@Override
+	public VertexConsumer setLineWidth(float width)
+	{
+		return this;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.phys.AABB;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.EntityUtils;
+
+/**
+ * Measures the per-frame work of {@code ChestEspEntityGroup.updateBoxes()},
+ * which interpolates the bounding box of every tracked entity and writes it
+ * into a {@link BoxStore}.
+ *
+ * <p>
+ * Entities can't be created without a level, so this calls the part of
+ * {@link EntityUtils#addLerpedBox(Entity, float, BoxStore)} that doesn't need
+ * one, with the positions that it would have read from the entity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityBoxesBenchmark
+{
+	@Param({"10", "100", "1000"})
+	public int entities;
+	
+	private final BoxStore boxes = new BoxStore();
+	private AABB[] entityBoxes;
+	private double[] oldPositions;
+	private double[] positions;
+	
+	@Setup
+	public void setup()
+	{
+		// roughly the size of a chest boat, moving a bit every tick
+		entityBoxes = new AABB[entities];
+		oldPositions = new double[entities * 3];
+		positions = new double[entities * 3];
+		for(int i = 0; i < entities; i++)
+		{
+			double x = i;
+			double y = 64;
+			double z = i / 2.0;
+			entityBoxes[i] = new AABB(x - 0.6875, y, z - 0.6875, x + 0.6875,
+				y + 0.5625, z + 0.6875);
+			oldPositions[i * 3] = x - 0.25;
+			oldPositions[i * 3 + 1] = y;
+			oldPositions[i * 3 + 2] = z - 0.25;
+			positions[i * 3] = x;
+			positions[i * 3 + 1] = y;
+			positions[i * 3 + 2] = z;
+		}
+	}
+	
+	@Benchmark
+	public int updateBoxes()
+	{
+		float partialTicks = 0.5F;
+		boxes.clear();
+		for(int i = 0; i < entities; i++)
+		{
+			int p = i * 3;
+			EntityUtils.addLerpedBox(entityBoxes[i], oldPositions[p],
+				oldPositions[p + 1], oldPositions[p + 2], positions[p],
+				positions[p + 1], positions[p + 2], partialTicks, boxes);
+		}
+		
+		return boxes.size();
+	}
+}
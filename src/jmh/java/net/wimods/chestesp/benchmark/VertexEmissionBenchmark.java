@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.math.Axis;
+
+import net.minecraft.world.phys.AABB;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.BoxTemplate;
+import net.wimods.chestesp.util.RenderUtils;
+
+/**
+ * Measures how fast boxes and lines are turned into vertices, using a
+ * {@link CountingVertexConsumer} instead of a real buffer. The pose is
+ * rotated like a typical camera, so the transformations aren't trivial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VertexEmissionBenchmark
+{
+	private static final int COLOR = 0x8000FF00;
+	
+	@Param({"1000"})
+	public int boxes;
+	
+	private final PoseStack matrices = new PoseStack();
+	private final CountingVertexConsumer buffer = new CountingVertexConsumer();
+	private final BoxStore boxStore = new BoxStore();
+	private AABB[] boxArray;
+	
+	@Setup
+	public void setup()
+	{
+		matrices.mulPose(Axis.XP.rotationDegrees(30));
+		matrices.mulPose(Axis.YP.rotationDegrees(135));
+		
+		// fixed seed, so that every run sees the same boxes
+		Random random = new Random(42);
+		boxArray = new AABB[boxes];
+		for(int i = 0; i < boxes; i++)
+		{
+			double x = random.nextInt(128) - 64;
+			double y = random.nextInt(32) - 16;
+			double z = random.nextInt(128) - 64;
+			boxArray[i] = new AABB(x + 0.0625, y, z + 0.0625, x + 0.9375,
+				y + 0.875, z + 0.9375);
+			boxStore.add(boxArray[i]);
+		}
+	}
+	
+	@Benchmark
+	public float solidBoxes()
+	{
+		buffer.reset();
+		for(AABB box : boxArray)
+			RenderUtils.drawSolidBox(matrices, buffer, box, COLOR);
+		
+		return buffer.checksum;
+	}
+	
+	@Benchmark
+	public float outlinedBoxes()
+	{
+		buffer.reset();
+		for(AABB box : boxArray)
+			RenderUtils.drawOutlinedBox(matrices, buffer, box, COLOR);
+		
+		return buffer.checksum;
+	}
+	
+	@Benchmark
+	public float templateSolidBoxes()
+	{
+		buffer.reset();
+		PoseStack.Pose entry = matrices.last();
+		for(int i = 0; i < boxStore.size(); i++)
+			BoxTemplate.drawSolidBox(entry, buffer, boxStore, i, 0, 0, 0,
+				COLOR);
+		
+		return buffer.checksum;
+	}
+	
+	@Benchmark
+	public float templateOutlinedBoxes()
+	{
+		buffer.reset();
+		PoseStack.Pose entry = matrices.last();
+		for(int i = 0; i < boxStore.size(); i++)
+			BoxTemplate.drawOutlinedBox(entry, buffer, boxStore, i, 0, 0, 0,
+				COLOR);
+		
+		return buffer.checksum;
+	}
+	
+	@Benchmark
+	public float lines()
+	{
+		buffer.reset();
+		PoseStack.Pose entry = matrices.last();
+		for(int i = 0; i < boxStore.size(); i++)
+			RenderUtils.drawLine(entry, buffer, 0, 0, 0,
+				(float)boxStore.getCenterX(i), (float)boxStore.getCenterY(i),
+				(float)boxStore.getCenterZ(i), COLOR);
+		
+		return buffer.checksum;
+	}
+}
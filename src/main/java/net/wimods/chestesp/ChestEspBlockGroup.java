@@ -7,6 +7,8 @@
  */
 package net.wimods.chestesp;
 
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import me.shedaniel.autoconfig.ConfigHolder;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.ChestBlock;
@@ -19,42 +21,123 @@ import net.wimods.chestesp.util.BlockUtils;
 
 public abstract class ChestEspBlockGroup extends ChestEspGroup
 {
+	private final Long2IntOpenHashMap indices = new Long2IntOpenHashMap();
+	private final LongArrayList positions = new LongArrayList();
+	private final ChestEspChunkClusters clusters = new ChestEspChunkClusters();
+	
 	public ChestEspBlockGroup(ConfigHolder<ChestEspConfig> configHolder,
 		String name)
 	{
 		super(configHolder, name);
+		indices.defaultReturnValue(-1);
 	}
 	
 	public abstract boolean matches(BlockEntity be);
 	
-	public final void addIfMatches(BlockEntity be)
+	/**
+	 * Adds, replaces or removes the box for the given block entity, depending
+	 * on its current state.
+	 */
+	public final void updateBox(BlockEntity be)
 	{
-		if(!matches(be))
-			return;
-		
+		long pos = be.getBlockPos().asLong();
 		AABB box = getBox(be);
 		if(box == null)
+			removeBox(pos);
+		else
+			setBox(pos, box);
+	}
+	
+	/**
+	 * Adds or replaces the box at the given position.
+	 */
+	public final void setBox(long pos, AABB box)
+	{
+		int index = indices.get(pos);
+		if(index >= 0)
+		{
+			if(!boxes.equals(index, box))
+			{
+				boxes.set(index, box);
+				markChanged();
+			}
+			
 			return;
+		}
 		
+		indices.put(pos, boxes.size());
+		positions.add(pos);
 		boxes.add(box);
+		clusters.add(pos);
+		markChanged();
+	}
+	
+	/**
+	 * Removes the box at the given position, if there is one. The last box
+	 * takes its place so that removals don't have to shift the list.
+	 */
+	public final void removeBox(long pos)
+	{
+		int index = indices.remove(pos);
+		if(index < 0)
+			return;
+		
+		int last = boxes.swapRemove(index);
+		if(index != last)
+		{
+			long lastPos = positions.getLong(last);
+			positions.set(index, lastPos);
+			indices.put(lastPos, index);
+		}
+		
+		positions.removeLong(last);
+		clusters.remove(pos);
+		markChanged();
+	}
+	
+	/**
+	 * Returns the position of the box at the given index in
+	 * {@link #getBoxStore()}.
+	 */
+	public final long getPosition(int index)
+	{
+		return positions.getLong(index);
+	}
+	
+	/**
+	 * Returns the per-chunk clusters of this group's boxes.
+	 */
+	public final ChestEspChunkClusters getClusters()
+	{
+		return clusters;
+	}
+	
+	@Override
+	public void clear()
+	{
+		indices.clear();
+		positions.clear();
+		clusters.clear();
+		super.clear();
 	}
 	
 	private AABB getBox(BlockEntity be)
 	{
 		BlockPos pos = be.getBlockPos();
+		BlockState state = BlockUtils.getState(pos);
 		
-		if(!BlockUtils.canBeClicked(pos))
+		AABB bounds = BlockUtils.getLocalBounds(pos, state);
+		if(bounds == null)
 			return null;
 		
 		if(be instanceof ChestBlockEntity)
-			return getChestBox((ChestBlockEntity)be);
+			return getChestBox(pos, state, bounds);
 		
-		return BlockUtils.getBoundingBox(pos);
+		return bounds.move(pos);
 	}
 	
-	private AABB getChestBox(ChestBlockEntity chestBE)
+	private AABB getChestBox(BlockPos pos, BlockState state, AABB bounds)
 	{
-		BlockState state = chestBE.getBlockState();
 		if(!state.hasProperty(ChestBlock.TYPE))
 			return null;
 		
@@ -64,8 +147,7 @@ public abstract class ChestEspBlockGroup extends ChestEspGroup
 		if(chestType == ChestType.LEFT)
 			return null;
 		
-		BlockPos pos = chestBE.getBlockPos();
-		AABB box = BlockUtils.getBoundingBox(pos);
+		AABB box = bounds.move(pos);
 		
 		// larger box for double chest
 		if(chestType != ChestType.SINGLE)
@@ -73,11 +155,10 @@ public abstract class ChestEspBlockGroup extends ChestEspGroup
 			BlockPos pos2 =
 				pos.relative(ChestBlock.getConnectedDirection(state));
 			
-			if(BlockUtils.canBeClicked(pos2))
-			{
-				AABB box2 = BlockUtils.getBoundingBox(pos2);
-				box = box.minmax(box2);
-			}
+			AABB bounds2 =
+				BlockUtils.getLocalBounds(pos2, BlockUtils.getState(pos2));
+			if(bounds2 != null)
+				box = box.minmax(bounds2.move(pos2));
 		}
 		
 		return box;
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.joml.Matrix4fStack;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+
+import me.shedaniel.autoconfig.ConfigHolder;
+import net.minecraft.util.profiling.Profiler;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.phys.Vec3;
+import net.wimods.chestesp.util.BoxMerger;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.BoxView;
+import net.wimods.chestesp.util.BoxTemplate;
+import net.wimods.chestesp.util.NearestBoxes;
+import net.wimods.chestesp.util.RenderUtils;
+import net.wimods.chestesp.util.WiModsRetainedBuffer;
+
+/**
+ * Keeps the boxes of all block groups on the GPU between frames, since block
+ * containers almost never change. The geometry is only rebuilt and uploaded
+ * again when a group's boxes, clusters, color or enabled state change, or
+ * when the camera has moved too far away from the point that the vertices
+ * are relative to.
+ *
+ * <p>
+ * The camera offset is applied through the model-view matrix instead of
+ * being baked into the vertices, so moving or turning the camera doesn't
+ * require a rebuild.
+ */
+public final class ChestEspBlockMesh
+{
+	/**
+	 * How far the camera can move away from the mesh origin before the mesh
+	 * is rebuilt. This keeps the float vertex coordinates precise and the
+	 * sorting of the translucent quads roughly correct.
+	 */
+	private static final double MAX_ORIGIN_DISTANCE_SQ = 16 * 16;
+	
+	private final ConfigHolder<ChestEspConfig> configHolder;
+	private final List<ChestEspBlockGroup> groups;
+	private final WiModsRetainedBuffer buffer =
+		new WiModsRetainedBuffer("ChestESP block boxes");
+	private final int[] versions;
+	private final int[] colors;
+	private final BoxStore[] selected;
+	private BoxStore merged = new BoxStore();
+	
+	private boolean built;
+	private int boxCount;
+	private int lodOutlineDistance;
+	private int lodMarkerDistance;
+	private boolean mergeBoxes;
+	private int maxBoxesPerGroup;
+	private int maxBoxes;
+	private double originX;
+	private double originY;
+	private double originZ;
+	
+	public ChestEspBlockMesh(ConfigHolder<ChestEspConfig> configHolder,
+		List<ChestEspBlockGroup> groups)
+	{
+		this.configHolder = Objects.requireNonNull(configHolder);
+		this.groups = Objects.requireNonNull(groups);
+		versions = new int[groups.size()];
+		colors = new int[groups.size()];
+		selected = new BoxStore[groups.size()];
+		Arrays.setAll(selected, i -> new BoxStore());
+	}
+	
+	/**
+	 * Draws the mesh. It isn't culled, since the camera is almost always
+	 * inside of its bounds and the GPU clips what's off screen anyway.
+	 */
+	public void render(PoseStack matrixStack)
+	{
+		Vec3 camPos = RenderUtils.getCameraPos();
+		if(needsRebuild(camPos))
+		{
+			ProfilerFiller profiler = Profiler.get();
+			profiler.push("rebuild");
+			rebuild(camPos);
+			profiler.pop();
+		}
+		
+		if(buffer.isEmpty())
+			return;
+		
+		Matrix4fStack modelViewStack = RenderSystem.getModelViewStack();
+		modelViewStack.pushMatrix();
+		modelViewStack.mul(matrixStack.last().pose());
+		modelViewStack.translate((float)(originX - camPos.x),
+			(float)(originY - camPos.y), (float)(originZ - camPos.z));
+		
+		buffer.draw();
+		ChestEspStats.countBoxes(boxCount);
+		
+		modelViewStack.popMatrix();
+	}
+	
+	/**
+	 * Forgets the current geometry, e.g. when ChestESP is turned off.
+	 */
+	public void clear()
+	{
+		buffer.reset();
+		built = false;
+	}
+	
+	private boolean needsRebuild(Vec3 camPos)
+	{
+		if(!built)
+			return true;
+		
+		double distanceSq = camPos.distanceToSqr(originX, originY, originZ);
+		if(distanceSq > MAX_ORIGIN_DISTANCE_SQ)
+			return true;
+		
+		ChestEspConfig config = configHolder.get();
+		if(config.lod_outline_distance != lodOutlineDistance
+			|| config.lod_marker_distance != lodMarkerDistance
+			|| config.merge_adjacent_boxes != mergeBoxes
+			|| config.max_boxes_per_group != maxBoxesPerGroup
+			|| config.max_boxes != maxBoxes)
+			return true;
+		
+		for(int i = 0; i < groups.size(); i++)
+		{
+			ChestEspBlockGroup group = groups.get(i);
+			if(group.getClusters().getVersion() != versions[i]
+				|| getColor(group) != colors[i])
+				return true;
+		}
+		
+		return false;
+	}
+	
+	private void rebuild(Vec3 camPos)
+	{
+		buffer.reset();
+		boxCount = 0;
+		originX = Math.floor(camPos.x);
+		originY = Math.floor(camPos.y);
+		originZ = Math.floor(camPos.z);
+		
+		for(int i = 0; i < groups.size(); i++)
+		{
+			versions[i] = groups.get(i).getClusters().getVersion();
+			colors[i] = getColor(groups.get(i));
+		}
+		
+		// Distances for the level of detail are measured from the origin, so
+		// they can be off by up to 16 blocks.
+		ChestEspConfig config = configHolder.get();
+		lodOutlineDistance = config.lod_outline_distance;
+		lodMarkerDistance = config.lod_marker_distance;
+		mergeBoxes = config.merge_adjacent_boxes;
+		maxBoxesPerGroup = config.max_boxes_per_group;
+		maxBoxes = config.max_boxes;
+		selectBoxes();
+		
+		// The vertices are relative to the origin and the camera rotation is
+		// applied by the model-view matrix, so they are built without any
+		// transformation. All groups share one draw per render type, with
+		// the group colors stored in the vertices.
+		PoseStack.Pose identity = new PoseStack().last();
+		
+		VertexConsumer quads =
+			buffer.getBuffer(ChestEspRenderLayers.getQuads(false));
+		for(int g = 0; g < groups.size(); g++)
+		{
+			ChestEspBlockGroup group = groups.get(g);
+			if(!group.isEnabled())
+				continue;
+			
+			int color = group.getColorI(0x40);
+			boxCount += selected[g].size();
+			ChestEspLod.drawSolidBoxes(identity, quads, selected[g], -originX,
+				-originY, -originZ, color, config);
+		}
+		
+		VertexConsumer lines =
+			buffer.getBuffer(ChestEspRenderLayers.getLines(false));
+		for(int g = 0; g < groups.size(); g++)
+		{
+			ChestEspBlockGroup group = groups.get(g);
+			if(!group.isEnabled())
+				continue;
+			
+			int color = group.getColorI(0x80);
+			ChestEspLod.drawOutlinedBoxes(identity, lines, selected[g],
+				-originX, -originY, -originZ, color, config);
+			
+			// Cluster boxes are only outlined, so they don't hide what's
+			// behind them, and never turned into markers.
+			BoxView clusters = group.getClusters().getClusterBoxes();
+			boxCount += clusters.size();
+			for(int i = 0; i < clusters.size(); i++)
+				BoxTemplate.drawOutlinedBox(identity, lines, clusters, i,
+					-originX, -originY, -originZ, color);
+		}
+		
+		buffer.upload();
+		built = true;
+	}
+	
+	/**
+	 * Picks the boxes of each group that aren't part of a cluster, keeping
+	 * only the ones closest to the origin if there are more than the limits
+	 * allow. If merging is turned on, touching boxes are then merged into
+	 * larger ones, so that a wall of containers doesn't draw every shared
+	 * face and edge again.
+	 */
+	private void selectBoxes()
+	{
+		for(int g = 0; g < groups.size(); g++)
+		{
+			ChestEspBlockGroup group = groups.get(g);
+			selected[g].clear();
+			if(!group.isEnabled())
+				continue;
+			
+			selected[g].addAll(group.getClusters().getSingleBoxes());
+			NearestBoxes.limit(selected[g], originX, originY, originZ,
+				maxBoxesPerGroup);
+		}
+		
+		NearestBoxes.limitTotal(selected, originX, originY, originZ,
+			maxBoxes);
+		
+		if(!mergeBoxes)
+			return;
+		
+		// merged once here, so the quads and lines can share the result
+		for(int g = 0; g < groups.size(); g++)
+		{
+			BoxMerger.merge(selected[g], merged);
+			BoxStore unmerged = selected[g];
+			selected[g] = merged;
+			merged = unmerged;
+		}
+	}
+	
+	private int getColor(ChestEspBlockGroup group)
+	{
+		// 0 can't be a real color because the alpha is never 0
+		return group.isEnabled() ? group.getColorI(0x80) : 0;
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+
+import me.shedaniel.autoconfig.ConfigHolder;
+import net.minecraft.world.phys.Vec3;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.BoxView;
+import net.wimods.chestesp.util.NearestBoxes;
+import net.wimods.chestesp.util.RenderUtils;
+
+/**
+ * Draws the tracers of all block groups. Clusters get one tracer each
+ * instead of one per container.
+ *
+ * <p>
+ * If the tracer limits are turned on, the closest containers are picked
+ * once and then reused, since block containers almost never change. Like in
+ * {@link ChestEspBlockMesh}, they are only picked again when a group's
+ * clusters or enabled state change, the limits change, or the camera has
+ * moved too far away from the point that they were picked from. Without
+ * limits, the tracers are drawn straight from the clusters and nothing is
+ * copied.
+ */
+public final class ChestEspBlockTracers
+{
+	/**
+	 * How far the camera can move before the closest containers are picked
+	 * again. Containers right at the limit may switch up to 16 blocks late.
+	 */
+	private static final double MAX_ORIGIN_DISTANCE_SQ = 16 * 16;
+	
+	private final ConfigHolder<ChestEspConfig> configHolder;
+	private final List<ChestEspBlockGroup> groups;
+	private final int[] versions;
+	private final boolean[] enabled;
+	private final BoxStore[] selected;
+	
+	private boolean built;
+	private int maxTracersPerGroup;
+	private int maxTracers;
+	private double originX;
+	private double originY;
+	private double originZ;
+	
+	public ChestEspBlockTracers(ConfigHolder<ChestEspConfig> configHolder,
+		List<ChestEspBlockGroup> groups)
+	{
+		this.configHolder = Objects.requireNonNull(configHolder);
+		this.groups = Objects.requireNonNull(groups);
+		versions = new int[groups.size()];
+		enabled = new boolean[groups.size()];
+		selected = new BoxStore[groups.size()];
+		Arrays.setAll(selected, i -> new BoxStore());
+	}
+	
+	public void render(PoseStack matrixStack, VertexConsumer buffer,
+		float partialTicks)
+	{
+		ChestEspConfig config = configHolder.get();
+		if(config.max_tracers_per_group >= NearestBoxes.UNLIMITED
+			&& config.max_tracers >= NearestBoxes.UNLIMITED)
+		{
+			clear();
+			for(ChestEspBlockGroup group : groups)
+			{
+				if(!group.isEnabled())
+					continue;
+				
+				ChestEspChunkClusters clusters = group.getClusters();
+				int color = group.getColorI(0x80);
+				draw(matrixStack, buffer, partialTicks,
+					clusters.getClusterBoxes(), color);
+				draw(matrixStack, buffer, partialTicks,
+					clusters.getSingleBoxes(), color);
+			}
+			
+			return;
+		}
+		
+		Vec3 camPos = RenderUtils.getCameraPos();
+		if(needsUpdate(camPos, config))
+			select(camPos, config);
+		
+		for(int i = 0; i < groups.size(); i++)
+			draw(matrixStack, buffer, partialTicks, selected[i],
+				groups.get(i).getColorI(0x80));
+	}
+	
+	/**
+	 * Forgets the picked containers, e.g. when ChestESP is turned off.
+	 */
+	public void clear()
+	{
+		if(!built)
+			return;
+		
+		for(BoxStore boxes : selected)
+			boxes.clear();
+		built = false;
+	}
+	
+	private boolean needsUpdate(Vec3 camPos, ChestEspConfig config)
+	{
+		if(!built)
+			return true;
+		
+		double distanceSq = camPos.distanceToSqr(originX, originY, originZ);
+		if(distanceSq > MAX_ORIGIN_DISTANCE_SQ)
+			return true;
+		
+		if(config.max_tracers_per_group != maxTracersPerGroup
+			|| config.max_tracers != maxTracers)
+			return true;
+		
+		for(int i = 0; i < groups.size(); i++)
+		{
+			ChestEspBlockGroup group = groups.get(i);
+			if(group.getClusters().getVersion() != versions[i]
+				|| group.isEnabled() != enabled[i])
+				return true;
+		}
+		
+		return false;
+	}
+	
+	private void select(Vec3 camPos, ChestEspConfig config)
+	{
+		originX = camPos.x;
+		originY = camPos.y;
+		originZ = camPos.z;
+		maxTracersPerGroup = config.max_tracers_per_group;
+		maxTracers = config.max_tracers;
+		
+		for(int i = 0; i < groups.size(); i++)
+		{
+			ChestEspBlockGroup group = groups.get(i);
+			ChestEspChunkClusters clusters = group.getClusters();
+			versions[i] = clusters.getVersion();
+			enabled[i] = group.isEnabled();
+			
+			BoxStore targets = selected[i];
+			targets.clear();
+			if(!enabled[i])
+				continue;
+			
+			targets.addAll(clusters.getClusterBoxes());
+			targets.addAll(clusters.getSingleBoxes());
+			NearestBoxes.limit(targets, originX, originY, originZ,
+				maxTracersPerGroup);
+		}
+		
+		NearestBoxes.limitTotal(selected, originX, originY, originZ,
+			maxTracers);
+		built = true;
+	}
+	
+	private void draw(PoseStack matrixStack, VertexConsumer buffer,
+		float partialTicks, BoxView targets, int color)
+	{
+		RenderUtils.drawBoxTracers(matrixStack, buffer, partialTicks, targets,
+			color);
+		ChestEspStats.countTracers(targets.size());
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.phys.AABB;
+import net.wimods.chestesp.util.BoxView;
+
+/**
+ * The remembered containers of one region of 32x32 chunks, which is also the
+ * unit that {@link ChestEspContainerCache} loads and saves.
+ *
+ * <p>
+ * Each chunk maps to a {@code long[]} with two entries per container: the
+ * packed block position and a packed {@link #encode(int, AABB, long) entry}
+ * that holds the group and the box, relative to the position, in sixteenths
+ * of a block. That's 16 bytes per container, both in memory and on disk.
+ */
+public final class ChestEspCacheRegion
+{
+	public static final int CHUNKS = 32;
+	
+	private static final int MAGIC = 0x43455350;// "CESP"
+	private static final int VERSION = 1;
+	private static final long[] EMPTY = {};
+	
+	private final Long2ObjectOpenHashMap<long[]> chunks =
+		new Long2ObjectOpenHashMap<>();
+	private boolean dirty;
+	
+	/**
+	 * Returns the containers of the given chunk, or an empty array if there
+	 * are none.
+	 */
+	public long[] get(long chunkKey)
+	{
+		return chunks.getOrDefault(chunkKey, EMPTY);
+	}
+	
+	/**
+	 * Replaces the containers of the given chunk and marks this region as
+	 * needing to be saved if they actually changed.
+	 */
+	public void put(long chunkKey, long[] entries)
+	{
+		if(Arrays.equals(get(chunkKey), entries))
+			return;
+		
+		if(entries.length == 0)
+			chunks.remove(chunkKey);
+		else
+			chunks.put(chunkKey, entries);
+		
+		dirty = true;
+	}
+	
+	public ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator()
+	{
+		return chunks.long2ObjectEntrySet().fastIterator();
+	}
+	
+	public boolean isDirty()
+	{
+		return dirty;
+	}
+	
+	/**
+	 * Serializes this region and marks it as saved. The group IDs in the
+	 * entries are stored as indices into {@code groupNames}, which is written
+	 * along with them so that the file stays readable if groups are added or
+	 * reordered later.
+	 */
+	public byte[] write(List<String> groupNames) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		
+		out.writeByte(groupNames.size());
+		for(String name : groupNames)
+			out.writeUTF(name);
+		
+		out.writeInt(chunks.size());
+		for(ObjectIterator<Long2ObjectMap.Entry<long[]>> itr =
+			iterator(); itr.hasNext();)
+		{
+			Long2ObjectMap.Entry<long[]> chunk = itr.next();
+			out.writeLong(chunk.getLongKey());
+			long[] entries = chunk.getValue();
+			out.writeInt(entries.length / 2);
+			for(long value : entries)
+				out.writeLong(value);
+		}
+		
+		dirty = false;
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Reads a region that was written by {@link #write(List)}. Entries of
+	 * groups that no longer exist are dropped. A missing file is read as an
+	 * empty region.
+	 */
+	public static ChestEspCacheRegion read(Path path, List<String> groupNames)
+		throws IOException
+	{
+		ChestEspCacheRegion region = new ChestEspCacheRegion();
+		
+		try(InputStream stream = Files.newInputStream(path))
+		{
+			DataInputStream in =
+				new DataInputStream(new BufferedInputStream(stream));
+			if(in.readInt() != MAGIC || in.readByte() != VERSION)
+				throw new IOException("Not a ChestESP cache file: " + path);
+			
+			int[] groupIds = new int[in.readUnsignedByte()];
+			for(int i = 0; i < groupIds.length; i++)
+				groupIds[i] = groupNames.indexOf(in.readUTF());
+			
+			int chunkCount = in.readInt();
+			for(int i = 0; i < chunkCount; i++)
+			{
+				long chunkKey = in.readLong();
+				long[] entries = new long[in.readInt() * 2];
+				int length = 0;
+				for(int j = 0; j < entries.length; j += 2)
+				{
+					long pos = in.readLong();
+					long entry = in.readLong();
+					int groupId = getGroupId(entry);
+					if(groupId >= groupIds.length || groupIds[groupId] < 0)
+						continue;
+					
+					entries[length++] = pos;
+					entries[length++] = withGroupId(entry, groupIds[groupId]);
+				}
+				
+				if(length > 0)
+					region.chunks.put(chunkKey, Arrays.copyOf(entries, length));
+			}
+			
+		}catch(NoSuchFileException e)
+		{
+			// nothing remembered here yet
+		}
+		
+		return region;
+	}
+	
+	/**
+	 * Packs the group ID and the box of one container into a long. Each
+	 * coordinate is stored as one byte, in sixteenths of a block relative to
+	 * the container's position, which covers double chests and all vanilla
+	 * container shapes.
+	 */
+	public static long encode(int groupId, AABB box, long pos)
+	{
+		return encode(groupId, box.minX, box.minY, box.minZ, box.maxX,
+			box.maxY, box.maxZ, pos);
+	}
+	
+	/**
+	 * Same as {@link #encode(int, AABB, long)}, but reads the box straight
+	 * from a {@link BoxView}.
+	 */
+	public static long encode(int groupId, BoxView boxes, int index,
+		long pos)
+	{
+		return encode(groupId, boxes.getMinX(index), boxes.getMinY(index),
+			boxes.getMinZ(index), boxes.getMaxX(index), boxes.getMaxY(index),
+			boxes.getMaxZ(index), pos);
+	}
+	
+	private static long encode(int groupId, double minX, double minY,
+		double minZ, double maxX, double maxY, double maxZ, long pos)
+	{
+		int x = BlockPos.getX(pos);
+		int y = BlockPos.getY(pos);
+		int z = BlockPos.getZ(pos);
+		return (long)(groupId & 0xFF) << 48 | encode(minX, x) << 40
+			| encode(minY, y) << 32 | encode(minZ, z) << 24
+			| encode(maxX, x) << 16 | encode(maxY, y) << 8 | encode(maxZ, z);
+	}
+	
+	public static int getGroupId(long entry)
+	{
+		return (int)(entry >>> 48 & 0xFF);
+	}
+	
+	public static AABB decodeBox(long entry, long pos)
+	{
+		int x = BlockPos.getX(pos);
+		int y = BlockPos.getY(pos);
+		int z = BlockPos.getZ(pos);
+		return new AABB(decode(entry >>> 40, x), decode(entry >>> 32, y),
+			decode(entry >>> 24, z), decode(entry >>> 16, x),
+			decode(entry >>> 8, y), decode(entry, z));
+	}
+	
+	private static long withGroupId(long entry, int groupId)
+	{
+		return entry & ~(0xFFL << 48) | (long)(groupId & 0xFF) << 48;
+	}
+	
+	private static long encode(double coord, int base)
+	{
+		long sixteenths = Math.round((coord - base) * 16) + 64;
+		return Math.clamp(sixteenths, 0, 255);
+	}
+	
+	private static double decode(long bits, int base)
+	{
+		return base + ((bits & 0xFF) - 64) / 16.0;
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.Vec3;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.BoxView;
+
+/**
+ * Counts the containers of one block group per chunk, so that chunks with
+ * lots of them (like an auto-sorter) can be drawn as a single cluster box
+ * with one tracer and a count, instead of one box and tracer per container.
+ *
+ * <p>
+ * The counts are kept up to date as boxes are added and removed. Which
+ * chunks are clustered is only worked out again when the group changes, the
+ * settings change, or the camera has moved far enough for the distance
+ * threshold to matter. The result is split into {@link #getSingleBoxes()}
+ * and {@link #getClusterBoxes()}, which renderers should draw instead of the
+ * group's own boxes.
+ */
+public final class ChestEspChunkClusters
+{
+	/**
+	 * How far the camera can move before the distance threshold is checked
+	 * again. Chunks right at the threshold may switch up to 16 blocks late.
+	 */
+	private static final double MAX_REFERENCE_DISTANCE_SQ = 16 * 16;
+	
+	private final Long2IntOpenHashMap counts = new Long2IntOpenHashMap();
+	private final Long2IntOpenHashMap clusterIndices =
+		new Long2IntOpenHashMap();
+	private final BoxStore singleBoxes = new BoxStore();
+	private final BoxStore clusterBoxes = new BoxStore();
+	private final IntArrayList clusterCounts = new IntArrayList();
+	
+	private BoxView singles = singleBoxes;
+	private boolean built;
+	private int version;
+	private int groupVersion;
+	private boolean enabled;
+	private int clusterDistance;
+	private int clusterMinCount;
+	private double refX;
+	private double refY;
+	private double refZ;
+	
+	public ChestEspChunkClusters()
+	{
+		clusterIndices.defaultReturnValue(-1);
+	}
+	
+	void add(long pos)
+	{
+		counts.addTo(getChunkKey(pos), 1);
+	}
+	
+	void remove(long pos)
+	{
+		long key = getChunkKey(pos);
+		if(counts.addTo(key, -1) <= 1)
+			counts.remove(key);
+	}
+	
+	void clear()
+	{
+		counts.clear();
+	}
+	
+	/**
+	 * Works out again which chunks are clustered, if anything has changed
+	 * that could affect that.
+	 */
+	public void update(ChestEspBlockGroup group, Vec3 camPos,
+		ChestEspConfig config)
+	{
+		double distanceSq = camPos.distanceToSqr(refX, refY, refZ);
+		if(built && group.getVersion() == groupVersion
+			&& config.cluster_containers == enabled
+			&& config.cluster_distance == clusterDistance
+			&& config.cluster_min_count == clusterMinCount
+			&& distanceSq <= MAX_REFERENCE_DISTANCE_SQ)
+			return;
+		
+		groupVersion = group.getVersion();
+		enabled = config.cluster_containers;
+		clusterDistance = config.cluster_distance;
+		clusterMinCount = config.cluster_min_count;
+		refX = camPos.x;
+		refY = camPos.y;
+		refZ = camPos.z;
+		rebuild(group);
+		built = true;
+		version++;
+	}
+	
+	private void rebuild(ChestEspBlockGroup group)
+	{
+		BoxView boxes = group.getBoxStore();
+		singleBoxes.clear();
+		clusterBoxes.clear();
+		clusterCounts.clear();
+		clusterIndices.clear();
+		
+		// nothing to do if no chunk is clustered, which is the usual case
+		singles = boxes;
+		if(!enabled || !hasClusteredChunk())
+			return;
+		
+		singles = singleBoxes;
+		for(int i = 0; i < boxes.size(); i++)
+		{
+			long key = getChunkKey(group.getPosition(i));
+			if(!isClustered(key))
+			{
+				singleBoxes.add(boxes.getMinX(i), boxes.getMinY(i),
+					boxes.getMinZ(i), boxes.getMaxX(i), boxes.getMaxY(i),
+					boxes.getMaxZ(i));
+				continue;
+			}
+			
+			int cluster = clusterIndices.get(key);
+			if(cluster < 0)
+			{
+				clusterIndices.put(key, clusterBoxes.size());
+				clusterBoxes.add(boxes.getMinX(i), boxes.getMinY(i),
+					boxes.getMinZ(i), boxes.getMaxX(i), boxes.getMaxY(i),
+					boxes.getMaxZ(i));
+				clusterCounts.add(counts.get(key));
+				continue;
+			}
+			
+			clusterBoxes.set(cluster,
+				Math.min(clusterBoxes.getMinX(cluster), boxes.getMinX(i)),
+				Math.min(clusterBoxes.getMinY(cluster), boxes.getMinY(i)),
+				Math.min(clusterBoxes.getMinZ(cluster), boxes.getMinZ(i)),
+				Math.max(clusterBoxes.getMaxX(cluster), boxes.getMaxX(i)),
+				Math.max(clusterBoxes.getMaxY(cluster), boxes.getMaxY(i)),
+				Math.max(clusterBoxes.getMaxZ(cluster), boxes.getMaxZ(i)));
+		}
+	}
+	
+	private boolean hasClusteredChunk()
+	{
+		LongIterator keys = counts.keySet().iterator();
+		while(keys.hasNext())
+			if(isClustered(keys.nextLong()))
+				return true;
+		
+		return false;
+	}
+	
+	/**
+	 * A chunk is clustered if it has at least {@code cluster_min_count}
+	 * containers, or if it has more than one and is at least
+	 * {@code cluster_distance} blocks away horizontally.
+	 */
+	private boolean isClustered(long key)
+	{
+		int count = counts.get(key);
+		if(count < 2)
+			return false;
+		
+		if(count >= clusterMinCount)
+			return true;
+		
+		double dx =
+			SectionPos.sectionToBlockCoord(ChunkPos.getX(key), 8) - refX;
+		double dz =
+			SectionPos.sectionToBlockCoord(ChunkPos.getZ(key), 8) - refZ;
+		return dx * dx + dz * dz >= (double)clusterDistance * clusterDistance;
+	}
+	
+	/**
+	 * Returns a number that changes whenever the split into single boxes and
+	 * cluster boxes changes.
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
+	
+	/**
+	 * Returns the boxes of containers that aren't part of a cluster.
+	 */
+	public BoxView getSingleBoxes()
+	{
+		return singles;
+	}
+	
+	/**
+	 * Returns one box per clustered chunk, around all of the group's
+	 * containers in that chunk.
+	 */
+	public BoxView getClusterBoxes()
+	{
+		return clusterBoxes;
+	}
+	
+	/**
+	 * Returns how many containers the cluster at the given index in
+	 * {@link #getClusterBoxes()} stands for.
+	 */
+	public int getClusterCount(int index)
+	{
+		return clusterCounts.getInt(index);
+	}
+	
+	private static long getChunkKey(long pos)
+	{
+		return ChunkPos.asLong(
+			SectionPos.blockToSectionCoord(BlockPos.getX(pos)),
+			SectionPos.blockToSectionCoord(BlockPos.getZ(pos)));
+	}
+}
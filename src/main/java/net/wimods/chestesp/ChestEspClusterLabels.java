@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.util.Objects;
+
+import org.joml.Vector3f;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import me.shedaniel.autoconfig.ConfigHolder;
+import net.minecraft.client.DeltaTracker;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.Font;
+import net.minecraft.client.gui.GuiGraphicsExtractor;
+import net.wimods.chestesp.util.BoxCuller;
+
+/**
+ * Shows how many containers each cluster box stands for. The positions are
+ * projected onto the screen while the world is rendered, using the same
+ * matrices as the {@link BoxCuller}, and the numbers are then drawn as part
+ * of the HUD, so they stay readable at any distance.
+ */
+public final class ChestEspClusterLabels
+{
+	private static final Minecraft MC = Minecraft.getInstance();
+	
+	private final ConfigHolder<ChestEspConfig> configHolder;
+	private final BoxCuller culler;
+	private final Vector3f screenPos = new Vector3f();
+	
+	// screen positions from -1 to 1, counts and colors of the labels
+	private final FloatArrayList xs = new FloatArrayList();
+	private final FloatArrayList ys = new FloatArrayList();
+	private final IntArrayList counts = new IntArrayList();
+	private final IntArrayList colors = new IntArrayList();
+	
+	/**
+	 * The culler must already be prepared for the current frame whenever
+	 * labels are added.
+	 */
+	public ChestEspClusterLabels(ConfigHolder<ChestEspConfig> configHolder,
+		BoxCuller culler)
+	{
+		this.configHolder = Objects.requireNonNull(configHolder);
+		this.culler = Objects.requireNonNull(culler);
+	}
+	
+	/**
+	 * Forgets the labels of the last frame.
+	 */
+	public void clear()
+	{
+		xs.clear();
+		ys.clear();
+		counts.clear();
+		colors.clear();
+	}
+	
+	/**
+	 * Adds a label for a cluster with the given center, unless that center
+	 * is off screen.
+	 */
+	public void add(double x, double y, double z, int count, int color)
+	{
+		if(!culler.project(x, y, z, screenPos))
+			return;
+		
+		if(Math.abs(screenPos.x) > 1 || Math.abs(screenPos.y) > 1)
+			return;
+		
+		xs.add(screenPos.x);
+		ys.add(screenPos.y);
+		counts.add(count);
+		colors.add(color);
+	}
+	
+	public void render(GuiGraphicsExtractor graphics, DeltaTracker deltaTracker)
+	{
+		if(!configHolder.get().enable)
+			return;
+		
+		Font font = MC.font;
+		for(int i = 0; i < counts.size(); i++)
+		{
+			String text = Integer.toString(counts.getInt(i));
+			int width = font.width(text);
+			int x = (int)((xs.getFloat(i) + 1) / 2 * graphics.guiWidth())
+				- width / 2;
+			int y = (int)((1 - ys.getFloat(i)) / 2 * graphics.guiHeight())
+				- font.lineHeight / 2;
+			
+			graphics.fill(x - 1, y - 1, x + width + 1, y + font.lineHeight,
+				0x90505050);
+			graphics.text(font, text, x, y, 0xFF000000 | colors.getInt(i));
+		}
+	}
+}
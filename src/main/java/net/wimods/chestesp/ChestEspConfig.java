@@ -106,6 +106,54 @@ public final class ChestEspConfig implements ConfigData
 	@ConfigEntry.Gui.Tooltip
 	public int furnace_color = 0xFF0000;
 	
+	@ConfigEntry.BoundedDiscrete(min = 16, max = 4096)
+	@ConfigEntry.Gui.Tooltip
+	public int scan_chunks_per_tick = 256;
+	
+	@ConfigEntry.BoundedDiscrete(min = 16, max = 1024)
+	@ConfigEntry.Gui.Tooltip
+	public int lod_outline_distance = 1024;
+	
+	@ConfigEntry.BoundedDiscrete(min = 16, max = 1024)
+	@ConfigEntry.Gui.Tooltip
+	public int lod_marker_distance = 1024;
+	
+	@ConfigEntry.Gui.Tooltip
+	public boolean merge_adjacent_boxes = false;
+	
+	@ConfigEntry.Gui.Tooltip
+	public boolean cluster_containers = false;
+	
+	@ConfigEntry.BoundedDiscrete(min = 16, max = 1024)
+	@ConfigEntry.Gui.Tooltip
+	public int cluster_distance = 160;
+	
+	@ConfigEntry.BoundedDiscrete(min = 2, max = 1024)
+	@ConfigEntry.Gui.Tooltip
+	public int cluster_min_count = 64;
+	
+	@ConfigEntry.BoundedDiscrete(min = 16, max = 65536)
+	@ConfigEntry.Gui.Tooltip
+	public int max_boxes_per_group = 65536;
+	
+	@ConfigEntry.BoundedDiscrete(min = 16, max = 65536)
+	@ConfigEntry.Gui.Tooltip
+	public int max_boxes = 65536;
+	
+	@ConfigEntry.BoundedDiscrete(min = 16, max = 65536)
+	@ConfigEntry.Gui.Tooltip
+	public int max_tracers_per_group = 65536;
+	
+	@ConfigEntry.BoundedDiscrete(min = 16, max = 65536)
+	@ConfigEntry.Gui.Tooltip
+	public int max_tracers = 65536;
+	
+	@ConfigEntry.Gui.Tooltip
+	public boolean remember_containers = false;
+	
+	@ConfigEntry.Gui.Tooltip
+	public boolean show_debug_overlay = false;
+	
 	@ConfigEntry.Gui.Tooltip
 	public boolean plausible = true;
 }
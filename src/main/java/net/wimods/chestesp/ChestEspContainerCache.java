@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import me.shedaniel.autoconfig.ConfigHolder;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientChunkCache;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.client.multiplayer.ServerData;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.Identifier;
+import net.minecraft.util.profiling.Profiler;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.storage.LevelResource;
+import net.wimods.chestesp.util.BoxView;
+
+/**
+ * Remembers the block containers that ChestESP has found, per world or
+ * server and per dimension, so that they can be shown right after joining
+ * and after their chunks have been unloaded.
+ *
+ * <p>
+ * Remembered containers are kept in {@link ChestEspCacheRegion}s of 32x32
+ * chunks, stored in one small file per region under
+ * {@code .minecraft/chestesp/cache/}. Only the regions around the player are
+ * kept in memory. Every few seconds, the containers that the
+ * {@link ChestEspContainerIndex} currently knows about are copied into the
+ * regions. Regions are read and written in the background, one at a time
+ * and in order.
+ *
+ * <p>
+ * Containers in chunks that aren't loaded are shown through a separate set
+ * of block groups, so they never interfere with the live ones. As soon as a
+ * chunk is loaded, its remembered containers are hidden and the live ones
+ * take over.
+ */
+public final class ChestEspContainerCache
+{
+	private static final Minecraft MC = Minecraft.getInstance();
+	
+	private static final int SYNC_INTERVAL = 20;
+	private static final int SAVE_INTERVAL = 100;
+	
+	/**
+	 * How many regions around the player's region are kept in memory in
+	 * each direction.
+	 */
+	private static final int REGION_RADIUS = 1;
+	
+	private final ConfigHolder<ChestEspConfig> configHolder;
+	private final ChestEspGroupManager groups;
+	private final ChestEspContainerIndex containerIndex;
+	private final ChestEspGroupManager remembered;
+	private final List<String> groupNames;
+	
+	private final Long2ObjectOpenHashMap<ChestEspCacheRegion> regions =
+		new Long2ObjectOpenHashMap<>();
+	private final Long2ObjectOpenHashMap<CompletableFuture<ChestEspCacheRegion>> loading =
+		new Long2ObjectOpenHashMap<>();
+	private final LongOpenHashSet shownChunks = new LongOpenHashSet();
+	private final ExecutorService ioExecutor =
+		Executors.newSingleThreadExecutor(Thread.ofPlatform().daemon()
+			.name("ChestESP Cache IO").factory());
+	
+	private Path dir;
+	private int ticks;
+	
+	// Directory of the current level, only looked up again when it changes.
+	// Every new connection comes with a new level as well.
+	private ClientLevel dirLevel;
+	private Path levelDir;
+	
+	public ChestEspContainerCache(ConfigHolder<ChestEspConfig> configHolder,
+		ChestEspGroupManager groups, ChestEspContainerIndex containerIndex)
+	{
+		this.configHolder = Objects.requireNonNull(configHolder);
+		this.groups = Objects.requireNonNull(groups);
+		this.containerIndex = Objects.requireNonNull(containerIndex);
+		remembered = new ChestEspGroupManager(configHolder);
+		groupNames =
+			groups.blockGroups.stream().map(ChestEspGroup::getName).toList();
+		
+		// The index forgets its containers on disconnect, so the last changes
+		// have to be copied before that.
+		Identifier phase = Identifier.fromNamespaceAndPath("chestesp", "cache");
+		ClientPlayConnectionEvents.DISCONNECT.addPhaseOrdering(phase,
+			Event.DEFAULT_PHASE);
+		ClientPlayConnectionEvents.DISCONNECT.register(phase,
+			(handler, client) -> close());
+	}
+	
+	/**
+	 * Called once per tick, after the {@link ChestEspContainerIndex} has been
+	 * updated.
+	 */
+	public void update()
+	{
+		Path dir = getDir();
+		if(!Objects.equals(dir, this.dir))
+		{
+			// The index has already moved on to the new level by now, so the
+			// old one can only be saved as it was at the last copy.
+			unload();
+			this.dir = dir;
+		}
+		
+		if(dir == null || ticks++ % SYNC_INTERVAL != 0)
+			return;
+		
+		ProfilerFiller profiler = Profiler.get();
+		profiler.push("cache");
+		loadRegions();
+		updateShownChunks();
+		
+		// The index only knows all loaded containers once its scan is done.
+		if(ticks % SAVE_INTERVAL == 1 && isIndexComplete())
+		{
+			copyLoadedContainers();
+			saveRegions();
+		}
+		
+		profiler.pop();
+	}
+	
+	/**
+	 * Copies the tracked containers one last time, then saves all changed
+	 * regions and forgets everything that's in memory. Must be called before
+	 * the {@link ChestEspContainerIndex} forgets its containers.
+	 */
+	public void close()
+	{
+		if(dir != null && MC.level == dirLevel && isIndexComplete())
+			copyLoadedContainers();
+		
+		unload();
+	}
+	
+	private void unload()
+	{
+		if(dir != null)
+			saveRegions();
+		
+		regions.clear();
+		loading.clear();
+		shownChunks.clear();
+		remembered.blockGroups.forEach(ChestEspGroup::clear);
+		dir = null;
+		ticks = 0;
+	}
+	
+	/**
+	 * Returns the block groups that hold the remembered containers in chunks
+	 * that aren't loaded.
+	 */
+	public List<ChestEspBlockGroup> getRememberedGroups()
+	{
+		return remembered.blockGroups;
+	}
+	
+	private void loadRegions()
+	{
+		ChunkPos center = MC.player.chunkPosition();
+		int centerX = center.x() >> 5;
+		int centerZ = center.z() >> 5;
+		
+		// forget regions that the player has moved away from
+		for(ObjectIterator<Long2ObjectMap.Entry<ChestEspCacheRegion>> itr =
+			regions.long2ObjectEntrySet().fastIterator(); itr.hasNext();)
+		{
+			Long2ObjectMap.Entry<ChestEspCacheRegion> entry = itr.next();
+			int x = ChunkPos.getX(entry.getLongKey());
+			int z = ChunkPos.getZ(entry.getLongKey());
+			if(Math.abs(x - centerX) <= REGION_RADIUS
+				&& Math.abs(z - centerZ) <= REGION_RADIUS)
+				continue;
+			
+			save(x, z, entry.getValue());
+			hide(entry.getValue());
+			itr.remove();
+		}
+		
+		for(LongIterator itr = loading.keySet().iterator(); itr.hasNext();)
+		{
+			long key = itr.nextLong();
+			if(Math.abs(ChunkPos.getX(key) - centerX) > REGION_RADIUS
+				|| Math.abs(ChunkPos.getZ(key) - centerZ) > REGION_RADIUS)
+				itr.remove();
+		}
+		
+		// Regions are read on the IO thread, after any writes that are still
+		// queued there, so they are never read back in an outdated state.
+		for(int dz = -REGION_RADIUS; dz <= REGION_RADIUS; dz++)
+			for(int dx = -REGION_RADIUS; dx <= REGION_RADIUS; dx++)
+			{
+				int x = centerX + dx;
+				int z = centerZ + dz;
+				long key = ChunkPos.asLong(x, z);
+				if(regions.containsKey(key))
+					continue;
+				
+				CompletableFuture<ChestEspCacheRegion> future =
+					loading.get(key);
+				if(future == null)
+					loading.put(key, load(x, z));
+				else if(future.isDone())
+				{
+					regions.put(key, future.join());
+					loading.remove(key);
+				}
+			}
+	}
+	
+	/**
+	 * Returns true if the index knows about all loaded containers, i.e. it's
+	 * active and its scan is done.
+	 */
+	private boolean isIndexComplete()
+	{
+		return containerIndex.isActive() && !containerIndex.isScanning();
+	}
+	
+	/**
+	 * Shows the remembered containers of chunks that aren't loaded and hides
+	 * those of chunks that are.
+	 */
+	private void updateShownChunks()
+	{
+		ClientChunkCache chunkSource = MC.level.getChunkSource();
+		for(ChestEspCacheRegion region : regions.values())
+			for(ObjectIterator<Long2ObjectMap.Entry<long[]>> itr =
+				region.iterator(); itr.hasNext();)
+			{
+				Long2ObjectMap.Entry<long[]> chunk = itr.next();
+				long chunkKey = chunk.getLongKey();
+				boolean loaded = chunkSource.getChunk(
+					ChunkPos.getX(chunkKey), ChunkPos.getZ(chunkKey),
+					false) != null;
+				
+				if(loaded != shownChunks.contains(chunkKey))
+					continue;
+				
+				setShown(chunk.getValue(), !loaded);
+				if(loaded)
+					shownChunks.remove(chunkKey);
+				else
+					shownChunks.add(chunkKey);
+			}
+	}
+	
+	private void hide(ChestEspCacheRegion region)
+	{
+		for(ObjectIterator<Long2ObjectMap.Entry<long[]>> itr =
+			region.iterator(); itr.hasNext();)
+		{
+			Long2ObjectMap.Entry<long[]> chunk = itr.next();
+			if(shownChunks.remove(chunk.getLongKey()))
+				setShown(chunk.getValue(), false);
+		}
+	}
+	
+	private void setShown(long[] entries, boolean shown)
+	{
+		for(int i = 0; i < entries.length; i += 2)
+		{
+			long pos = entries[i];
+			long entry = entries[i + 1];
+			ChestEspBlockGroup group = remembered.blockGroups
+				.get(ChestEspCacheRegion.getGroupId(entry));
+			
+			if(shown)
+				group.setBox(pos, ChestEspCacheRegion.decodeBox(entry, pos));
+			else
+				group.removeBox(pos);
+		}
+	}
+	
+	/**
+	 * Replaces the remembered containers of every loaded chunk with the ones
+	 * that are currently tracked. Containers of disabled groups aren't
+	 * tracked, so those are kept as they were.
+	 *
+	 * <p>
+	 * Only chunks that have tracked containers now, or had remembered ones
+	 * before, need to be looked at, so this doesn't have to go through every
+	 * chunk of every region.
+	 */
+	private void copyLoadedContainers()
+	{
+		Long2ObjectOpenHashMap<LongArrayList> live =
+			new Long2ObjectOpenHashMap<>();
+		for(int g = 0; g < groups.blockGroups.size(); g++)
+		{
+			ChestEspBlockGroup group = groups.blockGroups.get(g);
+			BoxView boxes = group.getBoxStore();
+			for(int i = 0; i < boxes.size(); i++)
+			{
+				long pos = group.getPosition(i);
+				int chunkX = SectionPos.blockToSectionCoord(BlockPos.getX(pos));
+				int chunkZ = SectionPos.blockToSectionCoord(BlockPos.getZ(pos));
+				long chunkKey = ChunkPos.asLong(chunkX, chunkZ);
+				LongArrayList entries = live.computeIfAbsent(chunkKey,
+					k -> new LongArrayList());
+				entries.add(pos);
+				entries.add(ChestEspCacheRegion.encode(g, boxes, i, pos));
+			}
+		}
+		
+		// loaded chunks whose remembered containers are all gone
+		ClientChunkCache chunkSource = MC.level.getChunkSource();
+		for(ChestEspCacheRegion region : regions.values())
+			for(ObjectIterator<Long2ObjectMap.Entry<long[]>> itr =
+				region.iterator(); itr.hasNext();)
+			{
+				long chunkKey = itr.next().getLongKey();
+				if(live.containsKey(chunkKey))
+					continue;
+				
+				int chunkX = ChunkPos.getX(chunkKey);
+				int chunkZ = ChunkPos.getZ(chunkKey);
+				if(chunkSource.getChunk(chunkX, chunkZ, false) != null)
+					live.put(chunkKey, new LongArrayList());
+			}
+		
+		for(Long2ObjectMap.Entry<LongArrayList> entry : live
+			.long2ObjectEntrySet())
+		{
+			long chunkKey = entry.getLongKey();
+			int regionX = ChunkPos.getX(chunkKey) >> 5;
+			int regionZ = ChunkPos.getZ(chunkKey) >> 5;
+			ChestEspCacheRegion region =
+				regions.get(ChunkPos.asLong(regionX, regionZ));
+			if(region == null)
+				continue;
+			
+			LongArrayList entries = entry.getValue();
+			keepDisabledGroups(region.get(chunkKey), entries);
+			region.put(chunkKey, entries.toLongArray());
+		}
+	}
+	
+	private void keepDisabledGroups(long[] oldEntries, LongArrayList entries)
+	{
+		for(int i = 0; i < oldEntries.length; i += 2)
+		{
+			int groupId = ChestEspCacheRegion.getGroupId(oldEntries[i + 1]);
+			if(groups.blockGroups.get(groupId).isEnabled())
+				continue;
+			
+			entries.add(oldEntries[i]);
+			entries.add(oldEntries[i + 1]);
+		}
+	}
+	
+	private void saveRegions()
+	{
+		for(Long2ObjectMap.Entry<ChestEspCacheRegion> entry : regions
+			.long2ObjectEntrySet())
+		{
+			long key = entry.getLongKey();
+			save(ChunkPos.getX(key), ChunkPos.getZ(key), entry.getValue());
+		}
+	}
+	
+	private CompletableFuture<ChestEspCacheRegion> load(int x, int z)
+	{
+		Path path = getRegionPath(dir, x, z);
+		return CompletableFuture.supplyAsync(() -> read(path), ioExecutor);
+	}
+	
+	private ChestEspCacheRegion read(Path path)
+	{
+		try
+		{
+			return ChestEspCacheRegion.read(path, groupNames);
+			
+		}catch(IOException e)
+		{
+			ChestEspMod.LOGGER.warn("Couldn't read {}, starting over.", path,
+				e);
+			return new ChestEspCacheRegion();
+		}
+	}
+	
+	/**
+	 * Serializes the region on the client thread, if it has changed, and
+	 * writes it to disk in the background.
+	 */
+	private void save(int x, int z, ChestEspCacheRegion region)
+	{
+		if(!region.isDirty())
+			return;
+		
+		Path path = getRegionPath(dir, x, z);
+		try
+		{
+			byte[] bytes = region.write(groupNames);
+			ioExecutor.execute(() -> write(path, bytes));
+			
+		}catch(IOException e)
+		{
+			ChestEspMod.LOGGER.error("Couldn't save {}", path, e);
+		}
+	}
+	
+	private static void write(Path path, byte[] bytes)
+	{
+		try
+		{
+			Files.createDirectories(path.getParent());
+			Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+			Files.write(temp, bytes);
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+			
+		}catch(IOException e)
+		{
+			ChestEspMod.LOGGER.error("Couldn't save {}", path, e);
+		}
+	}
+	
+	/**
+	 * Returns the directory for the current world or server and dimension,
+	 * or {@code null} if nothing should be remembered right now. This is
+	 * called every tick, so the directory is only worked out again when the
+	 * level changes.
+	 */
+	private Path getDir()
+	{
+		if(!configHolder.get().remember_containers || MC.level == null
+			|| MC.player == null)
+			return null;
+		
+		if(MC.level != dirLevel)
+		{
+			dirLevel = MC.level;
+			levelDir = findDir();
+		}
+		
+		return levelDir;
+	}
+	
+	private Path findDir()
+	{
+		// Singleplayer worlds are told apart by their save folder, since
+		// several worlds can have the same name.
+		String world;
+		if(MC.hasSingleplayerServer())
+			world = "singleplayer_" + MC.getSingleplayerServer()
+				.getWorldPath(LevelResource.ROOT).toAbsolutePath().normalize()
+				.getFileName();
+		else
+		{
+			ServerData server = MC.getCurrentServer();
+			if(server == null)
+				return null;
+			
+			world = "server_" + server.ip;
+		}
+		
+		Identifier dimension = MC.level.dimension().identifier();
+		return FabricLoader.getInstance().getGameDir().resolve("chestesp")
+			.resolve("cache").resolve(sanitize(world)).resolve(
+				sanitize(dimension.getNamespace() + "_" + dimension.getPath()));
+	}
+	
+	private static String sanitize(String name)
+	{
+		return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "_");
+	}
+	
+	private static Path getRegionPath(Path dir, int x, int z)
+	{
+		return dir.resolve("r." + x + "." + z + ".bin");
+	}
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import me.shedaniel.autoconfig.ConfigHolder;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientBlockEntityEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLevelEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.util.profiling.Profiler;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+/**
+ * Keeps track of all loaded container block entities and the block group that
+ * each one belongs to.
+ *
+ * <p>
+ * The index is updated from block entity load/unload events and from block
+ * updates, so the groups only need to recompute the boxes that actually
+ * changed instead of rescanning every loaded chunk on every tick.
+ *
+ * <p>
+ * Only containers of enabled groups are tracked. The loaded chunks are only
+ * scanned when the index is activated or the set of enabled groups changes.
+ * {@link ChestEspScanScheduler} spreads those scans over multiple ticks and
+ * {@link ChestEspSectionFilter} lets them skip chunks that can't contain any
+ * of the enabled containers.
+ */
+public final class ChestEspContainerIndex
+{
+	private static final Minecraft MC = Minecraft.getInstance();
+	
+	private final ConfigHolder<ChestEspConfig> configHolder;
+	private final ChestEspGroupManager groups;
+	private final Long2ObjectOpenHashMap<BlockEntity> containers =
+		new Long2ObjectOpenHashMap<>();
+	private final Long2ObjectOpenHashMap<ChestEspBlockGroup> owners =
+		new Long2ObjectOpenHashMap<>();
+	private final LongOpenHashSet dirty = new LongOpenHashSet();
+	private final ChestEspSectionFilter sectionFilter =
+		new ChestEspSectionFilter();
+	private final ChestEspScanScheduler scanScheduler =
+		new ChestEspScanScheduler();
+	private final Consumer<LevelChunk> chunkScanner = this::scanChunk;
+	private final Consumer<BlockEntity> blockEntityScanner = this::onScanned;
+	private final Reference2IntOpenHashMap<ChestEspBlockGroup> groupIndices =
+		new Reference2IntOpenHashMap<>();
+	private final int[] scanMatches;
+	
+	private boolean active;
+	private int enabledGroups;
+	private ChestEspScanEvent scanEvent;
+	
+	public ChestEspContainerIndex(ConfigHolder<ChestEspConfig> configHolder,
+		ChestEspGroupManager groups)
+	{
+		this.configHolder = Objects.requireNonNull(configHolder);
+		this.groups = Objects.requireNonNull(groups);
+		scanMatches = new int[groups.blockGroups.size()];
+		for(int i = 0; i < groups.blockGroups.size(); i++)
+			groupIndices.put(groups.blockGroups.get(i), i);
+		
+		ClientBlockEntityEvents.BLOCK_ENTITY_LOAD
+			.register((be, level) -> onLoad(be));
+		ClientBlockEntityEvents.BLOCK_ENTITY_UNLOAD
+			.register((be, level) -> onUnload(be));
+		ClientLevelEvents.AFTER_CLIENT_LEVEL_CHANGE
+			.register(this::onLevelChange);
+		ClientPlayConnectionEvents.DISCONNECT
+			.register((handler, client) -> clear());
+	}
+	
+	/**
+	 * Starts or stops tracking containers. Activating the index starts a scan
+	 * of the block entities that are already loaded. Deactivating it forgets
+	 * everything, so that a disabled ChestESP costs nothing.
+	 */
+	public void setActive(boolean active)
+	{
+		if(this.active == active)
+			return;
+		
+		this.active = active;
+		if(active)
+			rescan();
+		else
+			clear();
+	}
+	
+	/**
+	 * Continues any scan that is in progress and recomputes the boxes of all
+	 * containers that changed since the last call.
+	 */
+	public void update()
+	{
+		if(getEnabledGroups() != enabledGroups)
+		{
+			sectionFilter.invalidate();
+			rescan();
+		}
+		
+		ProfilerFiller profiler = Profiler.get();
+		profiler.push("scan");
+		scanScheduler.tick(chunkScanner,
+			configHolder.get().scan_chunks_per_tick);
+		if(scanEvent != null && !scanScheduler.isRunning())
+			finishScan(true);
+		profiler.pop();
+		
+		if(dirty.isEmpty())
+			return;
+		
+		profiler.push("boxes");
+		for(LongIterator itr = dirty.iterator(); itr.hasNext();)
+		{
+			long pos = itr.nextLong();
+			BlockEntity be = containers.get(pos);
+			if(be == null)
+				continue;
+			
+			if(be.isRemoved())
+			{
+				remove(pos);
+				continue;
+			}
+			
+			owners.get(pos).updateBox(be);
+		}
+		
+		dirty.clear();
+		profiler.pop();
+	}
+	
+	/**
+	 * Called when the block at the given position changes. Marks the
+	 * container at that position and any containers next to it as dirty,
+	 * since double chests span two blocks.
+	 */
+	public void onBlockChanged(BlockPos pos)
+	{
+		sectionFilter.onBlockChanged(pos);
+		
+		if(!active || containers.isEmpty())
+			return;
+		
+		markDirty(pos);
+	}
+	
+	/**
+	 * Adds the given block entity if it belongs to an enabled group. Returns
+	 * that group, or {@code null} if the block entity was ignored.
+	 */
+	private ChestEspBlockGroup onLoad(BlockEntity be)
+	{
+		if(!active)
+			return null;
+		
+		ChestEspStats.countVisitedBlockEntity();
+		ChestEspBlockGroup group = groups.getBlockGroup(be);
+		sectionFilter.learn(be.getBlockState().getBlock(), group);
+		if(group == null || !group.isEnabled())
+			return null;
+		
+		ChestEspStats.countMatchedContainer();
+		BlockPos blockPos = be.getBlockPos();
+		long pos = blockPos.asLong();
+		containers.put(pos, be);
+		
+		ChestEspBlockGroup oldGroup = owners.put(pos, group);
+		if(oldGroup != null && oldGroup != group)
+			oldGroup.removeBox(pos);
+		
+		markDirty(blockPos);
+		return group;
+	}
+	
+	private void onUnload(BlockEntity be)
+	{
+		if(!active)
+			return;
+		
+		BlockPos blockPos = be.getBlockPos();
+		long pos = blockPos.asLong();
+		
+		// ignore block entities that have already been replaced
+		if(containers.get(pos) != be)
+			return;
+		
+		remove(pos);
+		markDirty(blockPos);
+	}
+	
+	private void onLevelChange(Minecraft client, ClientLevel level)
+	{
+		// The new level hasn't loaded any chunks yet, so there is nothing to
+		// seed. Its block entities will arrive through the load events.
+		clear();
+		sectionFilter.invalidate();
+	}
+	
+	private void rescan()
+	{
+		clear();
+		enabledGroups = getEnabledGroups();
+		
+		if(MC.level == null || MC.player == null)
+			return;
+		
+		scanEvent = new ChestEspScanEvent();
+		scanEvent.begin();
+		scanScheduler.start();
+	}
+	
+	private void scanChunk(LevelChunk chunk)
+	{
+		ChestEspStats.countVisitedChunk();
+		scanEvent.chunksVisited++;
+		
+		if(sectionFilter.mayContainContainers(chunk))
+			chunk.getBlockEntities().values().forEach(blockEntityScanner);
+		else
+			scanEvent.chunksSkipped++;
+	}
+	
+	private void onScanned(BlockEntity be)
+	{
+		scanEvent.blockEntitiesVisited++;
+		
+		ChestEspBlockGroup group = onLoad(be);
+		if(group == null)
+			return;
+		
+		scanEvent.containersMatched++;
+		scanMatches[groupIndices.getInt(group)]++;
+	}
+	
+	/**
+	 * Commits the JFR event of the current scan, if there is one.
+	 */
+	private void finishScan(boolean completed)
+	{
+		if(scanEvent == null)
+			return;
+		
+		scanEvent.end();
+		if(scanEvent.shouldCommit())
+		{
+			scanEvent.completed = completed;
+			scanEvent.matchesPerGroup = getScanMatches();
+			scanEvent.commit();
+		}
+		
+		scanEvent = null;
+		Arrays.fill(scanMatches, 0);
+	}
+	
+	private String getScanMatches()
+	{
+		StringJoiner joiner = new StringJoiner(", ");
+		for(int i = 0; i < scanMatches.length; i++)
+			if(scanMatches[i] > 0)
+				joiner.add(groups.blockGroups.get(i).getName() + "="
+					+ scanMatches[i]);
+		
+		return joiner.toString();
+	}
+	
+	private int getEnabledGroups()
+	{
+		int enabledGroups = 0;
+		for(int i = 0; i < groups.blockGroups.size(); i++)
+			if(groups.blockGroups.get(i).isEnabled())
+				enabledGroups |= 1 << i;
+		
+		return enabledGroups;
+	}
+	
+	private void markDirty(BlockPos pos)
+	{
+		markDirty(pos.asLong());
+		for(Direction direction : Direction.Plane.HORIZONTAL)
+			markDirty(BlockPos.offset(pos.asLong(), direction));
+	}
+	
+	private void markDirty(long pos)
+	{
+		if(containers.containsKey(pos))
+			dirty.add(pos);
+	}
+	
+	private void remove(long pos)
+	{
+		containers.remove(pos);
+		ChestEspBlockGroup group = owners.remove(pos);
+		if(group != null)
+			group.removeBox(pos);
+	}
+	
+	private void clear()
+	{
+		finishScan(false);
+		scanScheduler.stop();
+		containers.clear();
+		owners.clear();
+		dirty.clear();
+		groups.blockGroups.forEach(ChestEspGroup::clear);
+	}
+	
+	public boolean isActive()
+	{
+		return active;
+	}
+	
+	/**
+	 * Returns true while a scan is in progress, i.e. not all loaded
+	 * containers have been found yet.
+	 */
+	public boolean isScanning()
+	{
+		return scanScheduler.isRunning();
+	}
+}
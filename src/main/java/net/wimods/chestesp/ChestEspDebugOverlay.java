@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.util.Locale;
+import java.util.Objects;
+
+import me.shedaniel.autoconfig.ConfigHolder;
+import net.minecraft.client.DeltaTracker;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.Font;
+import net.minecraft.client.gui.GuiGraphicsExtractor;
+
+/**
+ * Optional HUD overlay that shows what ChestESP is currently doing, using the
+ * same numbers that {@link ChestEspStats} reports to the profiler. Below the
+ * numbers, a graph shows how long {@link ChestEspMod#onRender} took in each
+ * of the last few frames.
+ *
+ * <p>
+ * This is meant for tracking down "ChestESP lags" reports, so it doesn't try
+ * hard to avoid allocations. None of that counts towards the measured frame
+ * time, since the HUD is rendered after the world.
+ */
+public final class ChestEspDebugOverlay
+{
+	private static final Minecraft MC = Minecraft.getInstance();
+	
+	private static final int MARGIN = 2;
+	private static final int PADDING = 2;
+	private static final int GRAPH_SAMPLES = 120;
+	private static final int GRAPH_HEIGHT = 40;
+	// one pixel of graph height per 50 microseconds, so 2 ms fill the graph
+	private static final long NANOS_PER_PIXEL = 50_000;
+	private static final long ONE_MS = 1_000_000;
+	
+	private final ConfigHolder<ChestEspConfig> configHolder;
+	private final ChestEspGroupManager groups;
+	
+	private final long[] frameNanos = new long[GRAPH_SAMPLES];
+	private int nextSample;
+	
+	public ChestEspDebugOverlay(ConfigHolder<ChestEspConfig> configHolder,
+		ChestEspGroupManager groups)
+	{
+		this.configHolder = Objects.requireNonNull(configHolder);
+		this.groups = Objects.requireNonNull(groups);
+	}
+	
+	public void render(GuiGraphicsExtractor graphics, DeltaTracker deltaTracker)
+	{
+		ChestEspConfig config = configHolder.get();
+		if(!config.show_debug_overlay || !config.enable)
+			return;
+		
+		// The HUD is rendered once per frame, right after ChestESP's own
+		// rendering, so this picks up every frame.
+		frameNanos[nextSample] = ChestEspStats.getRenderNanos();
+		nextSample = (nextSample + 1) % GRAPH_SAMPLES;
+		
+		Font font = MC.font;
+		int lineHeight = font.lineHeight + 1;
+		int lines = 4 + groups.allGroups.size();
+		int width = Math.max(GRAPH_SAMPLES, 150);
+		int height = lines * lineHeight + PADDING + GRAPH_HEIGHT;
+		int left = graphics.guiWidth() - width - MARGIN - PADDING * 2;
+		int top = MARGIN;
+		int x = left + PADDING;
+		int y = top + PADDING;
+		
+		graphics.fill(left, top, left + width + PADDING * 2,
+			top + height + PADDING * 2, 0x90505050);
+		
+		graphics.text(font, "ChestESP", x, y, 0xFFFFFFFF);
+		y += lineHeight;
+		graphics.text(font,
+			String.format(Locale.ROOT, "update: %.2f ms, %d chunks, %d BEs",
+				ChestEspStats.getUpdateNanos() / 1e6,
+				ChestEspStats.getVisitedChunks(),
+				ChestEspStats.getVisitedBlockEntities()),
+			x, y, 0xFFE0E0E0);
+		y += lineHeight;
+		graphics.text(font,
+			String.format(Locale.ROOT, "render: %.2f ms, %d draws, %d culled",
+				ChestEspStats.getRenderNanos() / 1e6,
+				ChestEspStats.getDrawCalls(), ChestEspStats.getCulledBoxes()),
+			x, y, 0xFFE0E0E0);
+		y += lineHeight;
+		graphics.text(font,
+			String.format(Locale.ROOT, "%d vertices, %.1f KiB, %d B alloc",
+				ChestEspStats.getVertices(),
+				ChestEspStats.getUploadedBytes() / 1024.0,
+				ChestEspStats.getRenderAllocatedBytes()),
+			x, y, 0xFFE0E0E0);
+		y += lineHeight;
+		
+		for(ChestEspGroup group : groups.allGroups)
+		{
+			boolean enabled = group.isEnabled();
+			String text = group.getName() + ": "
+				+ (enabled ? group.getBoxStore().size() : "off");
+			graphics.text(font, text, x, y,
+				enabled ? group.getColorI(0xFF) : 0xFF808080);
+			y += lineHeight;
+		}
+		
+		renderGraph(graphics, x, y + PADDING + GRAPH_HEIGHT);
+	}
+	
+	private void renderGraph(GuiGraphicsExtractor graphics, int x, int bottom)
+	{
+		for(int i = 0; i < GRAPH_SAMPLES; i++)
+		{
+			long nanos = frameNanos[(nextSample + i) % GRAPH_SAMPLES];
+			int height = (int)Math.min(GRAPH_HEIGHT, nanos / NANOS_PER_PIXEL);
+			int color = nanos < ONE_MS / 2 ? 0xFF00FF00
+				: nanos < ONE_MS ? 0xFFFFFF00 : 0xFFFF0000;
+			graphics.fill(x + i, bottom - height, x + i + 1, bottom, color);
+		}
+		
+		// 1 ms marker
+		int markerY = bottom - (int)(ONE_MS / NANOS_PER_PIXEL);
+		graphics.fill(x, markerY, x + GRAPH_SAMPLES, markerY + 1, 0x80FFFFFF);
+	}
+}
@@ -25,12 +25,20 @@ public abstract class ChestEspEntityGroup extends ChestEspGroup
 	
 	public abstract boolean matches(Entity e);
 	
-	public final void addIfMatches(Entity e)
+	/**
+	 * Adds an entity that {@link #matches(Entity)}. Called by
+	 * {@link ChestEspEntityIndex} when the entity is loaded.
+	 */
+	public final void add(Entity e)
 	{
-		if(!matches(e))
-			return;
-		
 		entities.add(e);
+		markChanged();
+	}
+	
+	public final void remove(Entity e)
+	{
+		if(entities.remove(e))
+			markChanged();
 	}
 	
 	@Override
@@ -44,7 +52,7 @@ public abstract class ChestEspEntityGroup extends ChestEspGroup
 	{
 		boxes.clear();
 		
-		for(Entity e : entities)
-			boxes.add(EntityUtils.getLerpedBox(e, partialTicks));
+		for(int i = 0; i < entities.size(); i++)
+			EntityUtils.addLerpedBox(entities.get(i), partialTicks, boxes);
 	}
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientEntityEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLevelEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.world.entity.Entity;
+
+/**
+ * Keeps the entity groups up to date from entity load/unload events, so
+ * that ChestESP never has to look at entities that aren't containers.
+ *
+ * <p>
+ * All container entities are tracked while the index is active, including
+ * those of disabled groups, since there are usually only a few of them.
+ * The loaded entities are only scanned when the index is activated or the
+ * level changes.
+ */
+public final class ChestEspEntityIndex
+{
+	private static final Minecraft MC = Minecraft.getInstance();
+	
+	private final ChestEspGroupManager groups;
+	private final Map<Entity, ChestEspEntityGroup> owners =
+		new IdentityHashMap<>();
+	
+	private boolean active;
+	
+	public ChestEspEntityIndex(ChestEspGroupManager groups)
+	{
+		this.groups = Objects.requireNonNull(groups);
+		
+		ClientEntityEvents.ENTITY_LOAD
+			.register((entity, level) -> onLoad(entity));
+		ClientEntityEvents.ENTITY_UNLOAD
+			.register((entity, level) -> onUnload(entity));
+		ClientLevelEvents.AFTER_CLIENT_LEVEL_CHANGE
+			.register(this::onLevelChange);
+		ClientPlayConnectionEvents.DISCONNECT
+			.register((handler, client) -> clear());
+	}
+	
+	/**
+	 * Starts or stops tracking container entities. Activating the index scans
+	 * the entities that are already loaded. Deactivating it forgets
+	 * everything.
+	 */
+	public void setActive(boolean active)
+	{
+		if(this.active == active)
+			return;
+		
+		this.active = active;
+		if(active)
+			rescan();
+		else
+			clear();
+	}
+	
+	private void onLoad(Entity entity)
+	{
+		if(!active || owners.containsKey(entity))
+			return;
+		
+		ChestEspEntityGroup group = groups.getEntityGroup(entity);
+		if(group == null)
+			return;
+		
+		owners.put(entity, group);
+		group.add(entity);
+	}
+	
+	private void onUnload(Entity entity)
+	{
+		if(!active)
+			return;
+		
+		ChestEspEntityGroup group = owners.remove(entity);
+		if(group != null)
+			group.remove(entity);
+	}
+	
+	private void onLevelChange(Minecraft client, ClientLevel level)
+	{
+		if(active)
+			rescan();
+	}
+	
+	private void rescan()
+	{
+		clear();
+		
+		if(MC.level != null)
+			MC.level.entitiesForRendering().forEach(this::onLoad);
+	}
+	
+	private void clear()
+	{
+		owners.clear();
+		groups.entityGroups.forEach(ChestEspGroup::clear);
+	}
+}
@@ -7,19 +7,20 @@
  */
 package net.wimods.chestesp;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 import me.shedaniel.autoconfig.ConfigHolder;
 import net.minecraft.world.phys.AABB;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.BoxView;
 
 public abstract class ChestEspGroup
 {
 	private final ConfigHolder<ChestEspConfig> configHolder;
 	private final String name;
-	protected final ArrayList<AABB> boxes = new ArrayList<>();
+	protected final BoxStore boxes = new BoxStore();
+	private int version;
 	
 	public ChestEspGroup(ConfigHolder<ChestEspConfig> configHolder, String name)
 	{
@@ -34,6 +35,24 @@ public abstract class ChestEspGroup
 	public void clear()
 	{
 		boxes.clear();
+		markChanged();
+	}
+	
+	/**
+	 * Must be called whenever the boxes change, so that renderers that keep
+	 * their own copy of the geometry know when to rebuild it.
+	 */
+	protected final void markChanged()
+	{
+		version++;
+	}
+	
+	/**
+	 * Returns a number that changes whenever the boxes change.
+	 */
+	public final int getVersion()
+	{
+		return version;
 	}
 	
 	public final String getName()
@@ -58,8 +77,27 @@ public abstract class ChestEspGroup
 		return String.format("#%06X", rgb);
 	}
 	
+	/**
+	 * Returns the boxes of this group without copying them. Renderers should
+	 * read them from here.
+	 *
+	 * <p>
+	 * The view is read-only because subclasses keep other data, like the
+	 * block positions, in the same order as the boxes. Code that needs to
+	 * change the boxes should copy them into its own {@link BoxStore}.
+	 */
+	public final BoxView getBoxStore()
+	{
+		return boxes;
+	}
+	
+	/**
+	 * Returns a read-only view of the boxes as {@link AABB} objects. Each
+	 * access creates a new box, so prefer {@link #getBoxStore()} where
+	 * performance matters.
+	 */
 	public final List<AABB> getBoxes()
 	{
-		return Collections.unmodifiableList(boxes);
+		return boxes.asList();
 	}
 }
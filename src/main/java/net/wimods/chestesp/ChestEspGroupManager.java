@@ -7,10 +7,16 @@
  */
 package net.wimods.chestesp;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 import me.shedaniel.autoconfig.ConfigHolder;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.level.block.entity.BlockEntity;
 import net.wimods.chestesp.groups.*;
 
 public final class ChestEspGroupManager
@@ -34,6 +40,11 @@ public final class ChestEspGroupManager
 	public final List<ChestEspEntityGroup> entityGroups;
 	public final List<ChestEspGroup> allGroups;
 	
+	private final Map<Class<?>, Optional<ChestEspBlockGroup>> blockDispatch =
+		new IdentityHashMap<>();
+	private final Map<EntityType<?>,
+		Optional<ChestEspEntityGroup>> entityDispatch = new IdentityHashMap<>();
+	
 	public ChestEspGroupManager(ConfigHolder<ChestEspConfig> ch)
 	{
 		normalChests = new NormalChestsGroup(ch);
@@ -60,4 +71,63 @@ public final class ChestEspGroupManager
 		allGroups =
 			Stream.concat(blockGroups.stream(), entityGroups.stream()).toList();
 	}
+	
+	/**
+	 * Returns the block group that the given block entity belongs to, or
+	 * {@code null} if it isn't a container that ChestESP knows about.
+	 *
+	 * <p>
+	 * Since {@link ChestEspBlockGroup#matches(BlockEntity)} only looks at the
+	 * type of the block entity, the result is resolved once per block entity
+	 * class (including Lootr's subclasses) and then looked up from a cache.
+	 */
+	public ChestEspBlockGroup getBlockGroup(BlockEntity be)
+	{
+		Optional<ChestEspBlockGroup> group = blockDispatch.get(be.getClass());
+		
+		if(group == null)
+		{
+			group = Optional.ofNullable(findBlockGroup(be));
+			blockDispatch.put(be.getClass(), group);
+		}
+		
+		return group.orElse(null);
+	}
+	
+	private ChestEspBlockGroup findBlockGroup(BlockEntity be)
+	{
+		for(ChestEspBlockGroup group : blockGroups)
+			if(group.matches(be))
+				return group;
+		
+		return null;
+	}
+	
+	/**
+	 * Returns the entity group that the given entity belongs to, or
+	 * {@code null} if it isn't a container that ChestESP knows about. Like
+	 * {@link #getBlockGroup(BlockEntity)}, the result is resolved once per
+	 * entity type and then looked up from a cache.
+	 */
+	public ChestEspEntityGroup getEntityGroup(Entity e)
+	{
+		Optional<ChestEspEntityGroup> group = entityDispatch.get(e.getType());
+		
+		if(group == null)
+		{
+			group = Optional.ofNullable(findEntityGroup(e));
+			entityDispatch.put(e.getType(), group);
+		}
+		
+		return group.orElse(null);
+	}
+	
+	private ChestEspEntityGroup findEntityGroup(Entity e)
+	{
+		for(ChestEspEntityGroup group : entityGroups)
+			if(group.matches(e))
+				return group;
+		
+		return null;
+	}
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+
+import net.wimods.chestesp.util.BoxView;
+import net.wimods.chestesp.util.BoxTemplate;
+
+/**
+ * Distance-based level of detail for container boxes. Far away containers
+ * only cover a few pixels, so they are drawn with fewer vertices:
+ * <ul>
+ * <li>{@link #FULL}: filled box and outline, 48 vertices</li>
+ * <li>{@link #OUTLINE}: outline only, 24 vertices</li>
+ * <li>{@link #MARKER}: a small cross that grows with the distance, so that it
+ * stays visible, 6 vertices</li>
+ * </ul>
+ *
+ * <p>
+ * The distance is measured from the point that the offset moves the boxes
+ * relative to, which is the camera for per-frame geometry and the mesh origin
+ * for {@link ChestEspBlockMesh}.
+ *
+ * <p>
+ * Both distances default to {@link #MAX_DISTANCE}, which turns them off, so
+ * every container is drawn as a full box unless the user opts in.
+ */
+public enum ChestEspLod
+{
+	FULL,
+	OUTLINE,
+	MARKER;
+	
+	/**
+	 * Size of the marker cross per block of distance.
+	 */
+	private static final float MARKER_SCALE = 0.01F;
+	private static final float MIN_MARKER_SIZE = 0.5F;
+	
+	/**
+	 * The highest distance that can be set in the config. Setting a distance
+	 * to this value turns that level of detail off.
+	 */
+	public static final int MAX_DISTANCE = 1024;
+	
+	public static ChestEspLod select(double distanceSq, ChestEspConfig config)
+	{
+		int marker = config.lod_marker_distance;
+		if(marker < MAX_DISTANCE && distanceSq >= (double)marker * marker)
+			return MARKER;
+		
+		int outline = config.lod_outline_distance;
+		if(outline < MAX_DISTANCE && distanceSq >= (double)outline * outline)
+			return OUTLINE;
+		
+		return FULL;
+	}
+	
+	/**
+	 * Adds the filled faces of all boxes that are close enough to have them.
+	 */
+	public static void drawSolidBoxes(PoseStack.Pose entry,
+		VertexConsumer buffer, BoxView boxes, double offsetX, double offsetY,
+		double offsetZ, int color, ChestEspConfig config)
+	{
+		for(int i = 0; i < boxes.size(); i++)
+			if(select(getDistanceSq(boxes, i, offsetX, offsetY, offsetZ),
+				config) == FULL)
+				BoxTemplate.drawSolidBox(entry, buffer, boxes, i, offsetX,
+					offsetY, offsetZ, color);
+	}
+	
+	/**
+	 * Adds the outlines of all boxes, or markers for those that are far
+	 * enough away.
+	 */
+	public static void drawOutlinedBoxes(PoseStack.Pose entry,
+		VertexConsumer buffer, BoxView boxes, double offsetX, double offsetY,
+		double offsetZ, int color, ChestEspConfig config)
+	{
+		for(int i = 0; i < boxes.size(); i++)
+		{
+			double distanceSq =
+				getDistanceSq(boxes, i, offsetX, offsetY, offsetZ);
+			if(select(distanceSq, config) != MARKER)
+			{
+				BoxTemplate.drawOutlinedBox(entry, buffer, boxes, i, offsetX,
+					offsetY, offsetZ, color);
+				continue;
+			}
+			
+			float size = Math.max(MIN_MARKER_SIZE,
+				(float)Math.sqrt(distanceSq) * MARKER_SCALE);
+			BoxTemplate.drawMarker(entry, buffer, boxes, i, offsetX, offsetY,
+				offsetZ, size, color);
+		}
+	}
+	
+	private static double getDistanceSq(BoxView boxes, int i, double offsetX,
+		double offsetY, double offsetZ)
+	{
+		double x = boxes.getCenterX(i) + offsetX;
+		double y = boxes.getCenterY(i) + offsetY;
+		double z = boxes.getCenterZ(i) + offsetZ;
+		return x * x + y * y + z * z;
+	}
+}
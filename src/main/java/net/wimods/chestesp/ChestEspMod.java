@@ -9,8 +9,13 @@ package net.wimods.chestesp;
 
 import com.mojang.blaze3d.platform.InputConstants;
 import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.joml.Matrix4fc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,23 +24,40 @@ import me.shedaniel.autoconfig.ConfigHolder;
 import me.shedaniel.autoconfig.serializer.GsonConfigSerializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keymapping.v1.KeyMappingHelper;
+import net.fabricmc.fabric.api.client.rendering.v1.hud.HudElementRegistry;
 import net.minecraft.client.KeyMapping;
-import net.minecraft.client.Minecraft;
+import net.minecraft.core.BlockPos;
 import net.minecraft.resources.Identifier;
-import net.minecraft.world.phys.AABB;
+import net.minecraft.util.profiling.Profiler;
+import net.minecraft.util.profiling.ProfilerFiller;
 import net.minecraft.world.phys.Vec3;
-import net.wimods.chestesp.util.ChunkUtils;
+import net.wimods.chestesp.util.BoxCuller;
+import net.wimods.chestesp.util.BoxStore;
+import net.wimods.chestesp.util.BoxView;
+import net.wimods.chestesp.util.NearestBoxes;
 import net.wimods.chestesp.util.PlausibleAnalytics;
 import net.wimods.chestesp.util.RenderUtils;
+import net.wimods.chestesp.util.WiModsBufferSource;
 
 public final class ChestEspMod
 {
-	private static final Minecraft MC = Minecraft.getInstance();
 	public static final Logger LOGGER = LoggerFactory.getLogger("ChestESP");
 	
 	private final ConfigHolder<ChestEspConfig> configHolder;
 	private final PlausibleAnalytics plausible;
 	private final ChestEspGroupManager groups;
+	private final ChestEspContainerIndex containerIndex;
+	private final ChestEspEntityIndex entityIndex;
+	private final ChestEspContainerCache containerCache;
+	private final ChestEspBlockMesh blockMesh;
+	private final ChestEspBlockMesh rememberedMesh;
+	private final ChestEspDebugOverlay debugOverlay;
+	private final ChestEspClusterLabels clusterLabels;
+	private final WiModsBufferSource bufferSource = new WiModsBufferSource();
+	private final BoxCuller culler = new BoxCuller();
+	private final BoxStore[] visibleEntityBoxes;
+	private final ChestEspBlockTracers blockTracers;
+	private final BoxStore[] entityTracerTargets;
 	private final KeyMapping toggleKey;
 	
 	private boolean enabled;
@@ -48,6 +70,29 @@ public final class ChestEspMod
 			GsonConfigSerializer::new);
 		
 		groups = new ChestEspGroupManager(configHolder);
+		containerIndex = new ChestEspContainerIndex(configHolder, groups);
+		entityIndex = new ChestEspEntityIndex(groups);
+		visibleEntityBoxes = new BoxStore[groups.entityGroups.size()];
+		Arrays.setAll(visibleEntityBoxes, i -> new BoxStore());
+		containerCache =
+			new ChestEspContainerCache(configHolder, groups, containerIndex);
+		blockMesh = new ChestEspBlockMesh(configHolder, groups.blockGroups);
+		rememberedMesh = new ChestEspBlockMesh(configHolder,
+			containerCache.getRememberedGroups());
+		List<ChestEspBlockGroup> tracerGroups = new ArrayList<>();
+		tracerGroups.addAll(groups.blockGroups);
+		tracerGroups.addAll(containerCache.getRememberedGroups());
+		blockTracers = new ChestEspBlockTracers(configHolder, tracerGroups);
+		entityTracerTargets = new BoxStore[groups.entityGroups.size()];
+		Arrays.setAll(entityTracerTargets, i -> new BoxStore());
+		debugOverlay = new ChestEspDebugOverlay(configHolder, groups);
+		clusterLabels = new ChestEspClusterLabels(configHolder, culler);
+		HudElementRegistry.addLast(
+			Identifier.fromNamespaceAndPath("chestesp", "cluster_labels"),
+			clusterLabels::render);
+		HudElementRegistry.addLast(
+			Identifier.fromNamespaceAndPath("chestesp", "debug_overlay"),
+			debugOverlay::render);
 		
 		KeyMapping.Category kbCategory = KeyMapping.Category
 			.register(Identifier.fromNamespaceAndPath("chestesp", "chestesp"));
@@ -72,10 +117,20 @@ public final class ChestEspMod
 		
 		LOGGER.info("{} ChestESP.", enabled ? "Enabling" : "Disabling");
 		
+		// the cache needs the index's containers for its last copy
+		if(!enabled)
+			containerCache.close();
+		
 		this.enabled = enabled;
+		containerIndex.setActive(enabled);
+		entityIndex.setActive(enabled);
 		
 		if(!enabled)
-			groups.allGroups.forEach(ChestEspGroup::clear);
+		{
+			blockMesh.clear();
+			rememberedMesh.clear();
+			blockTracers.clear();
+		}
 		
 		if(configHolder.get().enable != enabled)
 		{
@@ -90,13 +145,18 @@ public final class ChestEspMod
 		if(!isEnabled())
 			return;
 		
-		groups.allGroups.forEach(ChestEspGroup::clear);
-		
-		ChunkUtils.getLoadedBlockEntities().forEach(
-			be -> groups.blockGroups.forEach(group -> group.addIfMatches(be)));
-		
-		MC.level.entitiesForRendering().forEach(
-			e -> groups.entityGroups.forEach(group -> group.addIfMatches(e)));
+		ChestEspStats.beginTick();
+		ProfilerFiller profiler = Profiler.get();
+		profiler.push("chestesp");
+		containerIndex.update();
+		containerCache.update();
+		ChestEspStats.endTick();
+		profiler.pop();
+	}
+	
+	public void onBlockChanged(BlockPos pos)
+	{
+		containerIndex.onBlockChanged(pos);
 	}
 	
 	public boolean shouldCancelViewBobbing()
@@ -104,49 +164,176 @@ public final class ChestEspMod
 		return enabled && configHolder.get().style.hasLines();
 	}
 	
-	public void onRender(PoseStack matrixStack, float partialTicks)
+	public void onRender(PoseStack matrixStack, Matrix4fc projectionMatrix,
+		float partialTicks)
 	{
-		groups.entityGroups.stream().filter(ChestEspGroup::isEnabled)
-			.forEach(g -> g.updateBoxes(partialTicks));
+		ChestEspRenderEvent event = new ChestEspRenderEvent();
+		event.begin();
+		ChestEspStats.beginFrame();
+		
+		ProfilerFiller profiler = Profiler.get();
+		profiler.push("chestesp");
+		
+		profiler.push("entity_boxes");
+		for(ChestEspEntityGroup group : groups.entityGroups)
+			if(group.isEnabled())
+				group.updateBoxes(partialTicks);
 		
+		// also needed to place the cluster labels
+		culler.prepare(matrixStack.last().pose(), projectionMatrix);
+		
+		profiler.popPush("clusters");
+		clusterLabels.clear();
+		updateClusters(groups.blockGroups);
+		updateClusters(containerCache.getRememberedGroups());
+		
+		profiler.popPush("culling");
+		ChestEspConfig config = configHolder.get();
+		Vec3 camPos = RenderUtils.getCameraPos();
+		for(int i = 0; i < groups.entityGroups.size(); i++)
+		{
+			ChestEspEntityGroup group = groups.entityGroups.get(i);
+			if(!group.isEnabled())
+			{
+				visibleEntityBoxes[i].clear();
+				continue;
+			}
+			
+			ChestEspStats.countCulledBoxes(
+				culler.cull(group.getBoxStore(), visibleEntityBoxes[i]));
+			NearestBoxes.limit(visibleEntityBoxes[i], camPos.x, camPos.y,
+				camPos.z, config.max_boxes_per_group);
+		}
+		
+		NearestBoxes.limitTotal(visibleEntityBoxes, camPos.x, camPos.y,
+			camPos.z, config.max_boxes);
+		
+		// Block boxes stay on the GPU. Everything else goes into one shared
+		// buffer, so the whole frame needs a single upload and at most one
+		// draw per render type.
 		ChestEspStyle style = configHolder.get().style;
+		profiler.popPush("block_mesh");
 		if(style.hasBoxes())
-			renderBoxes(matrixStack);
+		{
+			blockMesh.render(matrixStack);
+			rememberedMesh.render(matrixStack);
+		}
+		
+		profiler.popPush("vertices");
+		if(style.hasBoxes())
+			renderEntityBoxes(matrixStack);
 		
 		if(style.hasLines())
 			renderTracers(matrixStack, partialTicks);
+		
+		profiler.popPush("upload");
+		bufferSource.uploadAndDraw();
+		profiler.pop();
+		
+		ChestEspStats.endFrame();
+		profiler.pop();
+		
+		event.end();
+		if(event.shouldCommit())
+		{
+			event.boxes = ChestEspStats.getBoxes();
+			event.tracers = ChestEspStats.getTracers();
+			event.vertices = ChestEspStats.getVertices();
+			event.uploadedBytes = ChestEspStats.getUploadedBytes();
+			event.drawCalls = ChestEspStats.getDrawCalls();
+			event.allocatedBytes = ChestEspStats.getRenderAllocatedBytes();
+			event.commit();
+		}
 	}
 	
-	private void renderBoxes(PoseStack matrixStack)
+	/**
+	 * Works out which chunks of the given groups are clustered and adds a
+	 * label for each cluster. This has to happen before the block meshes are
+	 * rendered, since they draw the cluster boxes.
+	 */
+	private void updateClusters(List<ChestEspBlockGroup> blockGroups)
 	{
-		for(ChestEspGroup group : groups.allGroups)
+		ChestEspConfig config = configHolder.get();
+		Vec3 camPos = RenderUtils.getCameraPos();
+		
+		for(ChestEspBlockGroup group : blockGroups)
 		{
 			if(!group.isEnabled())
 				continue;
 			
-			List<AABB> boxes = group.getBoxes();
-			int quadsColor = group.getColorI(0x40);
-			int linesColor = group.getColorI(0x80);
+			ChestEspChunkClusters clusters = group.getClusters();
+			clusters.update(group, camPos, config);
 			
-			RenderUtils.drawSolidBoxes(matrixStack, boxes, quadsColor, false);
-			RenderUtils.drawOutlinedBoxes(matrixStack, boxes, linesColor,
-				false);
+			BoxView boxes = clusters.getClusterBoxes();
+			for(int i = 0; i < boxes.size(); i++)
+				clusterLabels.add(boxes.getCenterX(i), boxes.getMaxY(i),
+					boxes.getCenterZ(i), clusters.getClusterCount(i),
+					group.getColorI(0xFF));
 		}
 	}
 	
+	/**
+	 * Draws the entity boxes that survived culling. Disabled groups have no
+	 * visible boxes, so they don't need to be skipped here.
+	 */
+	private void renderEntityBoxes(PoseStack matrixStack)
+	{
+		ChestEspConfig config = configHolder.get();
+		PoseStack.Pose entry = matrixStack.last();
+		Vec3 camPos = RenderUtils.getCameraPos();
+		
+		VertexConsumer quads =
+			bufferSource.getBuffer(ChestEspRenderLayers.getQuads(false));
+		for(int i = 0; i < visibleEntityBoxes.length; i++)
+		{
+			BoxStore boxes = visibleEntityBoxes[i];
+			ChestEspLod.drawSolidBoxes(entry, quads, boxes, -camPos.x,
+				-camPos.y, -camPos.z,
+				groups.entityGroups.get(i).getColorI(0x40), config);
+			ChestEspStats.countBoxes(boxes.size());
+		}
+		
+		VertexConsumer lines =
+			bufferSource.getBuffer(ChestEspRenderLayers.getLines(false));
+		for(int i = 0; i < visibleEntityBoxes.length; i++)
+			ChestEspLod.drawOutlinedBoxes(entry, lines, visibleEntityBoxes[i],
+				-camPos.x, -camPos.y, -camPos.z,
+				groups.entityGroups.get(i).getColorI(0x80), config);
+	}
+	
 	private void renderTracers(PoseStack matrixStack, float partialTicks)
 	{
-		for(ChestEspGroup group : groups.allGroups)
+		// same render type as the box outlines, so these share one draw
+		VertexConsumer buffer =
+			bufferSource.getBuffer(ChestEspRenderLayers.getLines(false));
+		blockTracers.render(matrixStack, buffer, partialTicks);
+		
+		// Entities move every frame, so their tracers are picked again every
+		// time. There are rarely enough of them for that to matter.
+		ChestEspConfig config = configHolder.get();
+		Vec3 camPos = RenderUtils.getCameraPos();
+		for(int i = 0; i < entityTracerTargets.length; i++)
 		{
+			BoxStore targets = entityTracerTargets[i];
+			targets.clear();
+			ChestEspEntityGroup group = groups.entityGroups.get(i);
 			if(!group.isEnabled())
 				continue;
 			
-			List<AABB> boxes = group.getBoxes();
-			List<Vec3> ends = boxes.stream().map(AABB::getCenter).toList();
-			int color = group.getColorI(0x80);
-			
-			RenderUtils.drawTracers(matrixStack, partialTicks, ends, color,
-				false);
+			targets.addAll(group.getBoxStore());
+			NearestBoxes.limit(targets, camPos.x, camPos.y, camPos.z,
+				config.max_tracers_per_group);
+		}
+		
+		NearestBoxes.limitTotal(entityTracerTargets, camPos.x, camPos.y,
+			camPos.z, config.max_tracers);
+		
+		for(int i = 0; i < entityTracerTargets.length; i++)
+		{
+			BoxStore targets = entityTracerTargets[i];
+			RenderUtils.drawBoxTracers(matrixStack, buffer, partialTicks,
+				targets, groups.entityGroups.get(i).getColorI(0x80));
+			ChestEspStats.countTracers(targets.size());
 		}
 	}
 	
@@ -165,6 +352,11 @@ public final class ChestEspMod
 		return configHolder;
 	}
 	
+	public ChestEspGroupManager getGroups()
+	{
+		return groups;
+	}
+	
 	public PlausibleAnalytics getPlausible()
 	{
 		return plausible;
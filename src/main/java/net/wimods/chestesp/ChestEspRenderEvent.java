@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for one call of {@link ChestEspMod#onRender}.
+ *
+ * <p>
+ * When JFR isn't recording, creating, beginning and ending this event is
+ * optimized away by the JIT, so it can be used on every frame.
+ */
+@Name("net.wimods.chestesp.Render")
+@Label("ChestESP Render")
+@Category("ChestESP")
+@Description("Rendering of ChestESP's boxes and tracers for one frame")
+public final class ChestEspRenderEvent extends Event
+{
+	@Label("Boxes")
+	public int boxes;
+	
+	@Label("Tracers")
+	public int tracers;
+	
+	@Label("Vertices")
+	@Description("Vertices built this frame, including any rebuild of the"
+		+ " retained block mesh")
+	public int vertices;
+	
+	@Label("Uploaded")
+	@DataAmount
+	public long uploadedBytes;
+	
+	@Label("Draw Calls")
+	public int drawCalls;
+	
+	@Label("Allocated")
+	@Description("Bytes allocated by the client thread during the frame")
+	@DataAmount
+	public long allocatedBytes;
+}
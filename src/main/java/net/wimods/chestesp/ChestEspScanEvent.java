@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for one scan of the loaded chunks by
+ * {@link ChestEspContainerIndex}. Since scans are spread over multiple ticks,
+ * the duration covers all of them.
+ */
+@Name("net.wimods.chestesp.Scan")
+@Label("ChestESP Scan")
+@Category("ChestESP")
+@Description("A scan of the loaded chunks for containers")
+public final class ChestEspScanEvent extends Event
+{
+	@Label("Completed")
+	@Description("False if the scan was cancelled or restarted")
+	public boolean completed;
+	
+	@Label("Chunks Visited")
+	public int chunksVisited;
+	
+	@Label("Chunks Skipped")
+	@Description("Chunks that the section filter ruled out")
+	public int chunksSkipped;
+	
+	@Label("Block Entities Visited")
+	public int blockEntitiesVisited;
+	
+	@Label("Containers Matched")
+	public int containersMatched;
+	
+	@Label("Matches Per Group")
+	public String matchesPerGroup;
+}
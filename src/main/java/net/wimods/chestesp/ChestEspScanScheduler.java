@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.util.function.Consumer;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientChunkCache;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.wimods.chestesp.util.ChunkUtils;
+
+/**
+ * Spreads a scan of the loaded chunks over multiple ticks. Chunks are visited
+ * in square rings around the chunk the player was in when the scan started,
+ * so nearby containers show up first, and each tick only visits a limited
+ * number of chunks.
+ */
+public final class ChestEspScanScheduler
+{
+	private static final Minecraft MC = Minecraft.getInstance();
+	
+	private boolean running;
+	private int centerX;
+	private int centerZ;
+	private int maxRadius;
+	
+	// position of the next chunk to visit
+	private int ring;
+	private int index;
+	
+	/**
+	 * Starts a new scan around the player, discarding any scan that is still
+	 * in progress.
+	 */
+	public void start()
+	{
+		ChunkPos center = MC.player.chunkPosition();
+		centerX = center.x();
+		centerZ = center.z();
+		maxRadius = ChunkUtils.getRadius();
+		ring = 0;
+		index = 0;
+		running = true;
+	}
+	
+	public void stop()
+	{
+		running = false;
+	}
+	
+	/**
+	 * Visits up to {@code chunkBudget} positions of the current scan, passing
+	 * any loaded chunk to the visitor. Unfinished work carries over to the
+	 * next call.
+	 */
+	public void tick(Consumer<LevelChunk> visitor, int chunkBudget)
+	{
+		if(!running)
+			return;
+		
+		ClientChunkCache chunkSource = MC.level.getChunkSource();
+		for(int i = 0; i < chunkBudget; i++)
+		{
+			if(ring > maxRadius)
+			{
+				running = false;
+				return;
+			}
+			
+			LevelChunk chunk = chunkSource.getChunk(centerX + getRingX(),
+				centerZ + getRingZ(), false);
+			if(chunk != null)
+				visitor.accept(chunk);
+			
+			advance();
+		}
+	}
+	
+	/**
+	 * Ring {@code r} has {@code 8r} positions (or one position if r is 0),
+	 * split into four edges that are walked clockwise starting from the
+	 * north-west corner.
+	 */
+	private int getRingX()
+	{
+		if(ring == 0)
+			return 0;
+		
+		int edgeLength = ring * 2;
+		int offset = index % edgeLength;
+		return switch(index / edgeLength)
+		{
+			case 0 -> -ring + offset;
+			case 1 -> ring;
+			case 2 -> ring - offset;
+			default -> -ring;
+		};
+	}
+	
+	private int getRingZ()
+	{
+		if(ring == 0)
+			return 0;
+		
+		int edgeLength = ring * 2;
+		int offset = index % edgeLength;
+		return switch(index / edgeLength)
+		{
+			case 0 -> -ring;
+			case 1 -> -ring + offset;
+			case 2 -> ring;
+			default -> ring - offset;
+		};
+	}
+	
+	private void advance()
+	{
+		index++;
+		if(index >= Math.max(1, ring * 8))
+		{
+			ring++;
+			index = 0;
+		}
+	}
+	
+	public boolean isRunning()
+	{
+		return running;
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+/**
+ * Uses the block state palettes of chunk sections to rule out chunks that
+ * can't contain any container of an enabled group, so that scans don't have
+ * to look at their block entities at all.
+ *
+ * <p>
+ * Blocks are mapped to groups as their block entities are seen. Until then,
+ * any block that has a block entity is treated as a possible container, so
+ * the filter never skips a section that might be relevant.
+ *
+ * <p>
+ * Sections and chunks that turn out to be empty are remembered until a block
+ * in them changes, the chunk is reloaded, or the set of enabled groups
+ * changes.
+ */
+public final class ChestEspSectionFilter
+{
+	private final Map<Block, ChestEspBlockGroup> knownBlocks =
+		new IdentityHashMap<>();
+	private final LongOpenHashSet emptySections = new LongOpenHashSet();
+	private final LongOpenHashSet emptyChunks = new LongOpenHashSet();
+	private final Predicate<BlockState> mayBeContainer = this::mayBeContainer;
+	
+	public ChestEspSectionFilter()
+	{
+		ClientChunkEvents.CHUNK_LOAD
+			.register((level, chunk) -> forgetChunk(chunk));
+		ClientChunkEvents.CHUNK_UNLOAD
+			.register((level, chunk) -> forgetChunk(chunk));
+	}
+	
+	/**
+	 * Returns false if the given chunk definitely doesn't contain any
+	 * container that belongs to an enabled group.
+	 */
+	public boolean mayContainContainers(LevelChunk chunk)
+	{
+		int chunkX = chunk.getPos().x();
+		int chunkZ = chunk.getPos().z();
+		long chunkKey = ChunkPos.asLong(chunkX, chunkZ);
+		if(emptyChunks.contains(chunkKey))
+			return false;
+		
+		boolean mayContain = false;
+		LevelChunkSection[] sections = chunk.getSections();
+		for(int i = 0; i < sections.length; i++)
+		{
+			int sectionY = chunk.getSectionYFromSectionIndex(i);
+			long sectionKey = SectionPos.asLong(chunkX, sectionY, chunkZ);
+			if(emptySections.contains(sectionKey))
+				continue;
+			
+			LevelChunkSection section = sections[i];
+			if(!section.hasOnlyAir() && section.maybeHas(mayBeContainer))
+			{
+				mayContain = true;
+				continue;
+			}
+			
+			emptySections.add(sectionKey);
+		}
+		
+		if(!mayContain)
+			emptyChunks.add(chunkKey);
+		
+		return mayContain;
+	}
+	
+	/**
+	 * Records which group the given block belongs to ({@code null} for none),
+	 * which allows sections that only contain other block entities to be
+	 * skipped. This can only rule out more sections, so the remembered empty
+	 * sections stay valid.
+	 */
+	public void learn(Block block, ChestEspBlockGroup group)
+	{
+		if(!knownBlocks.containsKey(block))
+			knownBlocks.put(block, group);
+	}
+	
+	/**
+	 * Called when the block at the given position changes.
+	 */
+	public void onBlockChanged(BlockPos pos)
+	{
+		if(emptySections.isEmpty())
+			return;
+		
+		int chunkX = SectionPos.blockToSectionCoord(pos.getX());
+		int chunkZ = SectionPos.blockToSectionCoord(pos.getZ());
+		emptySections.remove(SectionPos.asLong(chunkX,
+			SectionPos.blockToSectionCoord(pos.getY()), chunkZ));
+		emptyChunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+	}
+	
+	/**
+	 * Forgets all remembered empty sections. Must be called whenever a group
+	 * gets enabled, since its blocks may be in sections that were skipped.
+	 */
+	public void invalidate()
+	{
+		emptySections.clear();
+		emptyChunks.clear();
+	}
+	
+	private boolean mayBeContainer(BlockState state)
+	{
+		if(!state.hasBlockEntity())
+			return false;
+		
+		Block block = state.getBlock();
+		if(!knownBlocks.containsKey(block))
+			return true;
+		
+		ChestEspBlockGroup group = knownBlocks.get(block);
+		return group != null && group.isEnabled();
+	}
+	
+	private void forgetChunk(LevelChunk chunk)
+	{
+		int chunkX = chunk.getPos().x();
+		int chunkZ = chunk.getPos().z();
+		if(!emptyChunks.remove(ChunkPos.asLong(chunkX, chunkZ))
+			&& emptySections.isEmpty())
+			return;
+		
+		int sections = chunk.getSectionsCount();
+		for(int i = 0; i < sections; i++)
+			emptySections.remove(SectionPos.asLong(chunkX,
+				chunk.getSectionYFromSectionIndex(i), chunkZ));
+	}
+}
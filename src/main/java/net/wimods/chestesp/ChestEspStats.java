@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+import net.minecraft.util.profiling.Profiler;
+import net.minecraft.util.profiling.ProfilerFiller;
+
+/**
+ * Counts how much work ChestESP does per tick and per frame. The counts are
+ * reported to Minecraft's profiler as counters, so they show up in profiling
+ * results next to the {@code chestesp} sections.
+ *
+ * <p>
+ * All counting happens on the client thread and only increments plain int
+ * fields, so it's cheap enough to leave on all the time.
+ *
+ * <p>
+ * The time and the number of bytes allocated by each update and frame are
+ * measured as well. Allocations are read from the JVM's per-thread counter,
+ * which is reported as 0 on JVMs that don't support it. ChestESP's own update
+ * and render code shouldn't allocate anything in steady state, so any growth
+ * here means that new garbage has crept back in.
+ */
+public enum ChestEspStats
+{
+	;
+	
+	private static final ThreadMXBean THREAD_MX_BEAN = getThreadMXBean();
+	
+	// current tick
+	private static long tickStartNanos;
+	private static long tickStartBytes;
+	private static int visitedChunks;
+	private static int visitedBlockEntities;
+	private static int matchedContainers;
+	
+	// current frame
+	private static long frameStartNanos;
+	private static long frameStartBytes;
+	private static int boxes;
+	private static int culledBoxes;
+	private static int tracers;
+	private static int quadVertices;
+	private static int lineVertices;
+	private static int drawCalls;
+	
+	// last completed tick and frame
+	private static int lastVisitedChunks;
+	private static int lastVisitedBlockEntities;
+	private static int lastMatchedContainers;
+	private static int lastBoxes;
+	private static int lastCulledBoxes;
+	private static int lastTracers;
+	private static int lastVertices;
+	private static long lastUploadedBytes;
+	private static int lastDrawCalls;
+	private static long lastUpdateNanos;
+	private static long lastRenderNanos;
+	private static long lastUpdateAllocatedBytes;
+	private static long lastRenderAllocatedBytes;
+	
+	public static void countVisitedChunk()
+	{
+		visitedChunks++;
+	}
+	
+	public static void countVisitedBlockEntity()
+	{
+		visitedBlockEntities++;
+	}
+	
+	public static void countMatchedContainer()
+	{
+		matchedContainers++;
+	}
+	
+	public static void countBoxes(int count)
+	{
+		boxes += count;
+	}
+	
+	public static void countCulledBoxes(int count)
+	{
+		culledBoxes += count;
+	}
+	
+	public static void countTracers(int count)
+	{
+		tracers += count;
+	}
+	
+	public static void countDrawCalls(int count)
+	{
+		drawCalls += count;
+	}
+	
+	public static void countQuadVertices(int vertices)
+	{
+		quadVertices += vertices;
+	}
+	
+	public static void countLineVertices(int vertices)
+	{
+		lineVertices += vertices;
+	}
+	
+	/**
+	 * Called at the start of {@link ChestEspMod#onUpdate()}.
+	 */
+	public static void beginTick()
+	{
+		tickStartNanos = System.nanoTime();
+		tickStartBytes = getAllocatedBytes();
+	}
+	
+	/**
+	 * Called at the end of {@link ChestEspMod#onUpdate()}.
+	 */
+	public static void endTick()
+	{
+		long nanos = System.nanoTime() - tickStartNanos;
+		long allocated = getAllocatedBytes() - tickStartBytes;
+		
+		ProfilerFiller profiler = Profiler.get();
+		profiler.incrementCounter("chestesp:visited_chunks", visitedChunks);
+		profiler.incrementCounter("chestesp:visited_block_entities",
+			visitedBlockEntities);
+		profiler.incrementCounter("chestesp:matched_containers",
+			matchedContainers);
+		profiler.incrementCounter("chestesp:update_allocated_bytes",
+			(int)allocated);
+		
+		lastUpdateNanos = nanos;
+		lastUpdateAllocatedBytes = allocated;
+		lastVisitedChunks = visitedChunks;
+		lastVisitedBlockEntities = visitedBlockEntities;
+		lastMatchedContainers = matchedContainers;
+		visitedChunks = 0;
+		visitedBlockEntities = 0;
+		matchedContainers = 0;
+	}
+	
+	/**
+	 * Called at the start of {@link ChestEspMod#onRender}.
+	 */
+	public static void beginFrame()
+	{
+		frameStartNanos = System.nanoTime();
+		frameStartBytes = getAllocatedBytes();
+	}
+	
+	/**
+	 * Called at the end of {@link ChestEspMod#onRender}. Everything that was
+	 * emitted during the frame has been uploaded by then, either to the
+	 * per-frame buffer or to the retained block mesh.
+	 */
+	public static void endFrame()
+	{
+		long nanos = System.nanoTime() - frameStartNanos;
+		long allocated = getAllocatedBytes() - frameStartBytes;
+		
+		int vertices = quadVertices + lineVertices;
+		long bytes = (long)quadVertices
+			* ChestEspRenderLayers.ESP_QUADS.format().getVertexSize()
+			+ (long)lineVertices
+				* ChestEspRenderLayers.ESP_LINES.format().getVertexSize();
+		
+		ProfilerFiller profiler = Profiler.get();
+		profiler.incrementCounter("chestesp:culled_boxes", culledBoxes);
+		profiler.incrementCounter("chestesp:vertices", vertices);
+		profiler.incrementCounter("chestesp:uploaded_bytes", (int)bytes);
+		profiler.incrementCounter("chestesp:render_allocated_bytes",
+			(int)allocated);
+		
+		lastRenderNanos = nanos;
+		lastRenderAllocatedBytes = allocated;
+		lastBoxes = boxes;
+		lastCulledBoxes = culledBoxes;
+		lastTracers = tracers;
+		lastVertices = vertices;
+		lastUploadedBytes = bytes;
+		lastDrawCalls = drawCalls;
+		boxes = 0;
+		culledBoxes = 0;
+		tracers = 0;
+		quadVertices = 0;
+		lineVertices = 0;
+		drawCalls = 0;
+	}
+	
+	public static int getVisitedChunks()
+	{
+		return lastVisitedChunks;
+	}
+	
+	public static int getVisitedBlockEntities()
+	{
+		return lastVisitedBlockEntities;
+	}
+	
+	public static int getMatchedContainers()
+	{
+		return lastMatchedContainers;
+	}
+	
+	public static int getBoxes()
+	{
+		return lastBoxes;
+	}
+	
+	public static int getCulledBoxes()
+	{
+		return lastCulledBoxes;
+	}
+	
+	public static int getTracers()
+	{
+		return lastTracers;
+	}
+	
+	public static int getVertices()
+	{
+		return lastVertices;
+	}
+	
+	public static long getUploadedBytes()
+	{
+		return lastUploadedBytes;
+	}
+	
+	public static int getDrawCalls()
+	{
+		return lastDrawCalls;
+	}
+	
+	/**
+	 * Returns how long the last {@link ChestEspMod#onUpdate()} took, in
+	 * nanoseconds.
+	 */
+	public static long getUpdateNanos()
+	{
+		return lastUpdateNanos;
+	}
+	
+	/**
+	 * Returns how long the last {@link ChestEspMod#onRender} took, in
+	 * nanoseconds.
+	 */
+	public static long getRenderNanos()
+	{
+		return lastRenderNanos;
+	}
+	
+	/**
+	 * Returns how many bytes the last {@link ChestEspMod#onUpdate()}
+	 * allocated.
+	 */
+	public static long getUpdateAllocatedBytes()
+	{
+		return lastUpdateAllocatedBytes;
+	}
+	
+	/**
+	 * Returns how many bytes the last {@link ChestEspMod#onRender} allocated.
+	 */
+	public static long getRenderAllocatedBytes()
+	{
+		return lastRenderAllocatedBytes;
+	}
+	
+	/**
+	 * Returns the total number of bytes allocated by the current thread so
+	 * far, or 0 if the JVM can't measure it.
+	 */
+	public static long getAllocatedBytes()
+	{
+		if(THREAD_MX_BEAN == null)
+			return 0;
+		
+		return THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+	}
+	
+	private static ThreadMXBean getThreadMXBean()
+	{
+		if(!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean bean))
+			return null;
+		
+		if(!bean.isThreadAllocatedMemorySupported())
+			return null;
+		
+		bean.setThreadAllocatedMemoryEnabled(true);
+		return bean;
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.block.state.BlockState;
+import net.wimods.chestesp.ChestEspMod;
+
+@Mixin(ClientLevel.class)
+public abstract class ClientLevelMixin
+{
+	@Inject(
+		method = "sendBlockUpdated(Lnet/minecraft/core/BlockPos;Lnet/minecraft/world/level/block/state/BlockState;Lnet/minecraft/world/level/block/state/BlockState;I)V",
+		at = @At("HEAD"))
+	private void onSendBlockUpdated(BlockPos pos, BlockState oldState,
+		BlockState newState, int flags, CallbackInfo ci)
+	{
+		ChestEspMod chestEsp = ChestEspMod.getInstance();
+		if(chestEsp == null)
+			return;
+		
+		chestEsp.onBlockChanged(pos);
+	}
+}
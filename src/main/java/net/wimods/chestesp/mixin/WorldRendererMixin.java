@@ -42,6 +42,7 @@ public abstract class WorldRendererMixin
 		ChestEspMod chestEsp = ChestEspMod.getInstance();
 		
 		if(chestEsp != null && chestEsp.isEnabled())
-			chestEsp.onRender(matrixStack, tickProgress);
+			chestEsp.onRender(matrixStack, cameraState.projectionMatrix,
+				tickProgress);
 	}
 }
@@ -7,11 +7,12 @@
  */
 package net.wimods.chestesp.util;
 
+import java.util.IdentityHashMap;
+
 import net.minecraft.client.Minecraft;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.AABB;
-import net.minecraft.world.phys.shapes.Shapes;
 import net.minecraft.world.phys.shapes.VoxelShape;
 
 public enum BlockUtils
@@ -20,23 +21,54 @@ public enum BlockUtils
 	
 	private static final Minecraft MC = Minecraft.getInstance();
 	
+	private static final IdentityHashMap<BlockState, AABB> LOCAL_BOUNDS =
+		new IdentityHashMap<>();
+	private static final AABB NO_BOUNDS = new AABB(0, 0, 0, 0, 0, 0);
+	
 	public static BlockState getState(BlockPos pos)
 	{
 		return MC.level.getBlockState(pos);
 	}
 	
-	private static VoxelShape getOutlineShape(BlockPos pos)
+	/**
+	 * Returns the bounds of the block's outline shape relative to the block's
+	 * position, or {@code null} if the block has no outline (i.e. can't be
+	 * clicked).
+	 *
+	 * <p>
+	 * The bounds are cached per {@link BlockState}, except for blocks whose
+	 * shape can change without a state change (like opening shulker boxes) or
+	 * depends on the position (random offsets).
+	 */
+	public static AABB getLocalBounds(BlockPos pos, BlockState state)
+	{
+		if(state.hasDynamicShape() || state.hasOffsetFunction())
+			return computeLocalBounds(pos, state);
+		
+		AABB bounds = LOCAL_BOUNDS.get(state);
+		if(bounds == null)
+		{
+			bounds = computeLocalBounds(pos, state);
+			LOCAL_BOUNDS.put(state, bounds == null ? NO_BOUNDS : bounds);
+			return bounds;
+		}
+		
+		return bounds == NO_BOUNDS ? null : bounds;
+	}
+	
+	private static AABB computeLocalBounds(BlockPos pos, BlockState state)
 	{
-		return getState(pos).getShape(MC.level, pos);
+		VoxelShape shape = state.getShape(MC.level, pos);
+		return shape.isEmpty() ? null : shape.bounds();
 	}
 	
 	public static AABB getBoundingBox(BlockPos pos)
 	{
-		return getOutlineShape(pos).bounds().move(pos);
+		return getLocalBounds(pos, getState(pos)).move(pos);
 	}
 	
 	public static boolean canBeClicked(BlockPos pos)
 	{
-		return getOutlineShape(pos) != Shapes.empty();
+		return getLocalBounds(pos, getState(pos)) != null;
 	}
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.util;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Tests boxes against the camera's view frustum, so that boxes that can't be
+ * on screen don't have to be turned into vertices.
+ *
+ * <p>
+ * The frustum is built from the same projection and view matrices that the
+ * world is rendered with, so it follows every change to the FOV, including
+ * sprinting, potion effects and zooming. The test is conservative: it may
+ * draw a few boxes that are just off screen, but never skips one that is
+ * visible.
+ *
+ * <p>
+ * The same matrices are also used to {@link #project(double, double, double,
+ * Vector3f) project} points onto the screen.
+ */
+public final class BoxCuller
+{
+	private final Matrix4f viewProjection = new Matrix4f();
+	private final FrustumIntersection frustum = new FrustumIntersection();
+	private final Vector4f clipPos = new Vector4f();
+	
+	private double camX;
+	private double camY;
+	private double camZ;
+	
+	/**
+	 * Sets up the frustum for the current frame. {@code pose} is the view
+	 * rotation that the world is rendered with, without the camera position,
+	 * and {@code projection} is the projection matrix.
+	 */
+	public void prepare(Matrix4fc pose, Matrix4fc projection)
+	{
+		viewProjection.set(projection).mul(pose);
+		frustum.set(viewProjection, false);
+		
+		Vec3 camPos = RenderUtils.getCameraPos();
+		camX = camPos.x;
+		camY = camPos.y;
+		camZ = camPos.z;
+	}
+	
+	/**
+	 * Replaces the contents of {@code dest} with the boxes from {@code src}
+	 * that may be visible. Returns how many boxes were culled.
+	 */
+	public int cull(BoxView src, BoxStore dest)
+	{
+		dest.clear();
+		for(int i = 0; i < src.size(); i++)
+			if(isVisible(src, i))
+				dest.add(src.getMinX(i), src.getMinY(i), src.getMinZ(i),
+					src.getMaxX(i), src.getMaxY(i), src.getMaxZ(i));
+		
+		return src.size() - dest.size();
+	}
+	
+	public boolean isVisible(BoxView boxes, int index)
+	{
+		return isVisible(boxes.getMinX(index), boxes.getMinY(index),
+			boxes.getMinZ(index), boxes.getMaxX(index), boxes.getMaxY(index),
+			boxes.getMaxZ(index));
+	}
+	
+	public boolean isVisible(double minX, double minY, double minZ,
+		double maxX, double maxY, double maxZ)
+	{
+		// relative to the camera, so the floats stay precise
+		return frustum.testAab((float)(minX - camX), (float)(minY - camY),
+			(float)(minZ - camZ), (float)(maxX - camX), (float)(maxY - camY),
+			(float)(maxZ - camZ));
+	}
+	
+	/**
+	 * Projects the given point onto the screen. If it's in front of the
+	 * camera, stores its normalized device coordinates in {@code screenPos}
+	 * and returns true. X and Y go from -1 to 1 across the screen, with Y
+	 * pointing up.
+	 */
+	public boolean project(double x, double y, double z, Vector3f screenPos)
+	{
+		viewProjection.transform((float)(x - camX), (float)(y - camY),
+			(float)(z - camZ), 1, clipPos);
+		if(clipPos.w <= 0)
+			return false;
+		
+		screenPos.set(clipPos.x / clipPos.w, clipPos.y / clipPos.w,
+			clipPos.z / clipPos.w);
+		return true;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.util;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+/**
+ * Greedily merges boxes that share a whole face into larger cuboids, so that
+ * walls of barrels or shulker boxes are drawn as a few big boxes instead of
+ * hundreds of small ones with inner faces and edges that are drawn over and
+ * over again.
+ *
+ * <p>
+ * The boxes are merged into rows along X, the rows into layers along Z and
+ * the layers into cuboids along Y. Two boxes are only merged if one ends
+ * exactly where the other begins and they are the same in the other two
+ * axes, so the merged boxes cover exactly the same space as the original
+ * ones. Boxes that are inset from the block edges, like chests, never touch
+ * and stay as they are.
+ *
+ * <p>
+ * Must only be used on the render thread.
+ */
+public enum BoxMerger
+{
+	;
+	
+	private static final int X = 0;
+	private static final int Y = 1;
+	private static final int Z = 2;
+	
+	private static final BoxStore rows = new BoxStore();
+	private static final BoxStore layers = new BoxStore();
+	private static final double[] current = new double[6];
+	private static int[] order = new int[16];
+	
+	/**
+	 * Replaces the contents of {@code dest} with the merged boxes from
+	 * {@code src}.
+	 */
+	public static void merge(BoxView src, BoxStore dest)
+	{
+		mergeAlong(src, rows, X);
+		mergeAlong(rows, layers, Z);
+		mergeAlong(layers, dest, Y);
+	}
+	
+	private static void mergeAlong(BoxView in, BoxStore out, int axis)
+	{
+		out.clear();
+		if(in.isEmpty())
+			return;
+		
+		int a = (axis + 1) % 3;
+		int b = (axis + 2) % 3;
+		
+		// sort so that boxes that could be merged end up next to each other
+		int size = in.size();
+		if(order.length < size)
+			order = new int[Math.max(size, order.length * 2)];
+		for(int i = 0; i < size; i++)
+			order[i] = i;
+		IntArrays.quickSort(order, 0, size, (i, j) -> {
+			int result = Double.compare(getMin(in, i, a), getMin(in, j, a));
+			if(result == 0)
+				result = Double.compare(getMin(in, i, b), getMin(in, j, b));
+			if(result == 0)
+				result = Double.compare(getMax(in, i, a), getMax(in, j, a));
+			if(result == 0)
+				result = Double.compare(getMax(in, i, b), getMax(in, j, b));
+			if(result == 0)
+				result = Double.compare(getMin(in, i, axis),
+					getMin(in, j, axis));
+			return result;
+		});
+		
+		load(in, order[0]);
+		for(int k = 1; k < size; k++)
+		{
+			int i = order[k];
+			boolean touching = getMin(in, i, axis) == current[axis + 3]
+				&& getMin(in, i, a) == current[a]
+				&& getMin(in, i, b) == current[b]
+				&& getMax(in, i, a) == current[a + 3]
+				&& getMax(in, i, b) == current[b + 3];
+			
+			if(touching)
+			{
+				current[axis + 3] = getMax(in, i, axis);
+				continue;
+			}
+			
+			out.add(current[0], current[1], current[2], current[3],
+				current[4], current[5]);
+			load(in, i);
+		}
+		
+		out.add(current[0], current[1], current[2], current[3], current[4],
+			current[5]);
+	}
+	
+	private static void load(BoxView boxes, int i)
+	{
+		current[0] = boxes.getMinX(i);
+		current[1] = boxes.getMinY(i);
+		current[2] = boxes.getMinZ(i);
+		current[3] = boxes.getMaxX(i);
+		current[4] = boxes.getMaxY(i);
+		current[5] = boxes.getMaxZ(i);
+	}
+	
+	private static double getMin(BoxView boxes, int i, int axis)
+	{
+		return switch(axis)
+		{
+			case X -> boxes.getMinX(i);
+			case Y -> boxes.getMinY(i);
+			default -> boxes.getMinZ(i);
+		};
+	}
+	
+	private static double getMax(BoxView boxes, int i, int axis)
+	{
+		return switch(axis)
+		{
+			case X -> boxes.getMaxX(i);
+			case Y -> boxes.getMaxY(i);
+			default -> boxes.getMaxZ(i);
+		};
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import net.minecraft.world.phys.AABB;
+
+/**
+ * A growable list of boxes that stores each coordinate in its own primitive
+ * array instead of keeping one {@link AABB} object per box. Adding, changing
+ * and removing boxes doesn't allocate anything once the arrays are large
+ * enough, and renderers can read the coordinates directly.
+ */
+public final class BoxStore implements BoxView
+{
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private double[] minX = new double[INITIAL_CAPACITY];
+	private double[] minY = new double[INITIAL_CAPACITY];
+	private double[] minZ = new double[INITIAL_CAPACITY];
+	private double[] maxX = new double[INITIAL_CAPACITY];
+	private double[] maxY = new double[INITIAL_CAPACITY];
+	private double[] maxZ = new double[INITIAL_CAPACITY];
+	private int size;
+	
+	private final List<AABB> view = new View();
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+	
+	public void clear()
+	{
+		size = 0;
+	}
+	
+	public void add(AABB box)
+	{
+		add(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+	}
+	
+	public void add(double minX, double minY, double minZ, double maxX,
+		double maxY, double maxZ)
+	{
+		if(size == this.minX.length)
+			grow();
+		
+		set(size++, minX, minY, minZ, maxX, maxY, maxZ);
+	}
+	
+	/**
+	 * Adds all boxes from {@code other} to the end of this store.
+	 */
+	public void addAll(BoxView other)
+	{
+		for(int i = 0; i < other.size(); i++)
+			add(other.getMinX(i), other.getMinY(i), other.getMinZ(i),
+				other.getMaxX(i), other.getMaxY(i), other.getMaxZ(i));
+	}
+	
+	public void set(int index, AABB box)
+	{
+		set(index, box.minX, box.minY, box.minZ, box.maxX, box.maxY,
+			box.maxZ);
+	}
+	
+	public void set(int index, double minX, double minY, double minZ,
+		double maxX, double maxY, double maxZ)
+	{
+		this.minX[index] = minX;
+		this.minY[index] = minY;
+		this.minZ[index] = minZ;
+		this.maxX[index] = maxX;
+		this.maxY[index] = maxY;
+		this.maxZ[index] = maxZ;
+	}
+	
+	/**
+	 * Removes the box at the given index by moving the last box into its
+	 * place, so that nothing has to be shifted. Returns the index that the
+	 * moved box had before, which is the new size of this store.
+	 */
+	public int swapRemove(int index)
+	{
+		int last = --size;
+		if(index != last)
+			set(index, minX[last], minY[last], minZ[last], maxX[last],
+				maxY[last], maxZ[last]);
+		
+		return last;
+	}
+	
+	@Override
+	public boolean equals(int index, AABB box)
+	{
+		return minX[index] == box.minX && minY[index] == box.minY
+			&& minZ[index] == box.minZ && maxX[index] == box.maxX
+			&& maxY[index] == box.maxY && maxZ[index] == box.maxZ;
+	}
+	
+	@Override
+	public AABB get(int index)
+	{
+		return new AABB(minX[index], minY[index], minZ[index], maxX[index],
+			maxY[index], maxZ[index]);
+	}
+	
+	@Override
+	public double getMinX(int index)
+	{
+		return minX[index];
+	}
+	
+	@Override
+	public double getMinY(int index)
+	{
+		return minY[index];
+	}
+	
+	@Override
+	public double getMinZ(int index)
+	{
+		return minZ[index];
+	}
+	
+	@Override
+	public double getMaxX(int index)
+	{
+		return maxX[index];
+	}
+	
+	@Override
+	public double getMaxY(int index)
+	{
+		return maxY[index];
+	}
+	
+	@Override
+	public double getMaxZ(int index)
+	{
+		return maxZ[index];
+	}
+	
+	@Override
+	public double getCenterX(int index)
+	{
+		return (minX[index] + maxX[index]) / 2;
+	}
+	
+	@Override
+	public double getCenterY(int index)
+	{
+		return (minY[index] + maxY[index]) / 2;
+	}
+	
+	@Override
+	public double getCenterZ(int index)
+	{
+		return (minZ[index] + maxZ[index]) / 2;
+	}
+	
+	@Override
+	public List<AABB> asList()
+	{
+		return view;
+	}
+	
+	private void grow()
+	{
+		int capacity = minX.length * 2;
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		minZ = Arrays.copyOf(minZ, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		maxZ = Arrays.copyOf(maxZ, capacity);
+	}
+	
+	private final class View extends AbstractList<AABB> implements RandomAccess
+	{
+		@Override
+		public AABB get(int index)
+		{
+			if(index < 0 || index >= size)
+				throw new IndexOutOfBoundsException(index);
+			
+			return BoxStore.this.get(index);
+		}
+		
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.util;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+
+import net.minecraft.world.phys.AABB;
+import net.wimods.chestesp.ChestEspStats;
+
+/**
+ * Emits box vertices from a unit cube template. Instead of transforming all
+ * 24 vertices of a box one by one, only the minimum corner and the three
+ * edge vectors are transformed, and the eight corners are then put together
+ * from those and looked up through fixed index tables.
+ *
+ * <p>
+ * Produces the same vertices (up to float rounding) as
+ * {@link RenderUtils#drawSolidBox(PoseStack, VertexConsumer, AABB, int)} and
+ * {@link RenderUtils#drawOutlinedBox(PoseStack, VertexConsumer, AABB, int)},
+ * and doesn't allocate anything. Must only be used on the render thread.
+ */
+public enum BoxTemplate
+{
+	;
+	
+	// Corners are numbered by bits: 1 = max X, 2 = max Y, 4 = max Z.
+	private static final byte[] QUAD_CORNERS = {0, 1, 5, 4, 2, 6, 7, 3, 0, 2,
+		3, 1, 1, 3, 7, 5, 4, 5, 7, 6, 0, 4, 6, 2};
+	private static final byte[] LINE_CORNERS = {0, 1, 0, 4, 1, 5, 4, 5, 2, 3,
+		2, 6, 3, 7, 6, 7, 0, 2, 1, 3, 4, 6, 5, 7};
+	
+	// axis of each line: 0 = X, 1 = Y, 2 = Z
+	private static final byte[] LINE_AXES =
+		{0, 2, 2, 0, 0, 2, 2, 0, 1, 1, 1, 1};
+	
+	private static final float[] corners = new float[8 * 3];
+	private static final float[] normals = new float[3 * 3];
+	private static final Vector3f min = new Vector3f();
+	private static final Vector3f edgeX = new Vector3f();
+	private static final Vector3f edgeY = new Vector3f();
+	private static final Vector3f edgeZ = new Vector3f();
+	private static final Vector3f normal = new Vector3f();
+	
+	/**
+	 * Adds the six faces of {@code box}, moved by the given offset, as quads.
+	 */
+	public static void drawSolidBox(PoseStack.Pose entry,
+		VertexConsumer buffer, AABB box, double offsetX, double offsetY,
+		double offsetZ, int color)
+	{
+		computeCorners(entry.pose(), box.minX + offsetX, box.minY + offsetY,
+			box.minZ + offsetZ, box.maxX + offsetX, box.maxY + offsetY,
+			box.maxZ + offsetZ);
+		emitQuads(buffer, color);
+	}
+	
+	/**
+	 * Adds the six faces of the box at {@code index}, moved by the given
+	 * offset, as quads.
+	 */
+	public static void drawSolidBox(PoseStack.Pose entry,
+		VertexConsumer buffer, BoxView boxes, int index, double offsetX,
+		double offsetY, double offsetZ, int color)
+	{
+		computeCorners(entry.pose(), boxes.getMinX(index) + offsetX,
+			boxes.getMinY(index) + offsetY, boxes.getMinZ(index) + offsetZ,
+			boxes.getMaxX(index) + offsetX, boxes.getMaxY(index) + offsetY,
+			boxes.getMaxZ(index) + offsetZ);
+		emitQuads(buffer, color);
+	}
+	
+	/**
+	 * Adds the twelve edges of {@code box}, moved by the given offset, as
+	 * lines.
+	 */
+	public static void drawOutlinedBox(PoseStack.Pose entry,
+		VertexConsumer buffer, AABB box, double offsetX, double offsetY,
+		double offsetZ, int color)
+	{
+		computeCorners(entry.pose(), box.minX + offsetX, box.minY + offsetY,
+			box.minZ + offsetZ, box.maxX + offsetX, box.maxY + offsetY,
+			box.maxZ + offsetZ);
+		emitLines(entry, buffer, color);
+	}
+	
+	/**
+	 * Adds the twelve edges of the box at {@code index}, moved by the given
+	 * offset, as lines.
+	 */
+	public static void drawOutlinedBox(PoseStack.Pose entry,
+		VertexConsumer buffer, BoxView boxes, int index, double offsetX,
+		double offsetY, double offsetZ, int color)
+	{
+		computeCorners(entry.pose(), boxes.getMinX(index) + offsetX,
+			boxes.getMinY(index) + offsetY, boxes.getMinZ(index) + offsetZ,
+			boxes.getMaxX(index) + offsetX, boxes.getMaxY(index) + offsetY,
+			boxes.getMaxZ(index) + offsetZ);
+		emitLines(entry, buffer, color);
+	}
+	
+	/**
+	 * Adds a cross of three lines with the given size at the center of the
+	 * box at {@code index}, moved by the given offset. This takes 6 vertices
+	 * instead of the 48 of a full box.
+	 */
+	public static void drawMarker(PoseStack.Pose entry, VertexConsumer buffer,
+		BoxView boxes, int index, double offsetX, double offsetY,
+		double offsetZ, float size, int color)
+	{
+		double x = boxes.getCenterX(index) + offsetX;
+		double y = boxes.getCenterY(index) + offsetY;
+		double z = boxes.getCenterZ(index) + offsetZ;
+		double half = size / 2.0;
+		computeCorners(entry.pose(), x - half, y - half, z - half, x + half,
+			y + half, z + half);
+		computeNormals(entry);
+		ChestEspStats.countLineVertices(6);
+		
+		float centerX = min.x + (edgeX.x + edgeY.x + edgeZ.x) / 2;
+		float centerY = min.y + (edgeX.y + edgeY.y + edgeZ.y) / 2;
+		float centerZ = min.z + (edgeX.z + edgeY.z + edgeZ.z) / 2;
+		emitMarkerLine(buffer, centerX, centerY, centerZ, edgeX, 0, color);
+		emitMarkerLine(buffer, centerX, centerY, centerZ, edgeY, 1, color);
+		emitMarkerLine(buffer, centerX, centerY, centerZ, edgeZ, 2, color);
+	}
+	
+	private static void emitMarkerLine(VertexConsumer buffer, float centerX,
+		float centerY, float centerZ, Vector3f edge, int axis, int color)
+	{
+		int n = axis * 3;
+		float dx = edge.x / 2;
+		float dy = edge.y / 2;
+		float dz = edge.z / 2;
+		buffer.addVertex(centerX - dx, centerY - dy, centerZ - dz)
+			.setColor(color)
+			.setNormal(normals[n], normals[n + 1], normals[n + 2])
+			.setLineWidth(2);
+		buffer.addVertex(centerX + dx, centerY + dy, centerZ + dz)
+			.setColor(color)
+			.setNormal(normals[n], normals[n + 1], normals[n + 2])
+			.setLineWidth(2);
+	}
+	
+	private static void emitQuads(VertexConsumer buffer, int color)
+	{
+		ChestEspStats.countQuadVertices(QUAD_CORNERS.length);
+		for(int i = 0; i < QUAD_CORNERS.length; i++)
+		{
+			int c = QUAD_CORNERS[i] * 3;
+			buffer.addVertex(corners[c], corners[c + 1], corners[c + 2])
+				.setColor(color);
+		}
+	}
+	
+	private static void emitLines(PoseStack.Pose entry, VertexConsumer buffer,
+		int color)
+	{
+		computeNormals(entry);
+		ChestEspStats.countLineVertices(LINE_CORNERS.length);
+		
+		for(int i = 0; i < LINE_CORNERS.length; i++)
+		{
+			int c = LINE_CORNERS[i] * 3;
+			int n = LINE_AXES[i / 2] * 3;
+			buffer.addVertex(corners[c], corners[c + 1], corners[c + 2])
+				.setColor(color)
+				.setNormal(normals[n], normals[n + 1], normals[n + 2])
+				.setLineWidth(2);
+		}
+	}
+	
+	private static void computeCorners(Matrix4f pose, double minX,
+		double minY, double minZ, double maxX, double maxY, double maxZ)
+	{
+		float x1 = (float)minX;
+		float y1 = (float)minY;
+		float z1 = (float)minZ;
+		float x2 = (float)maxX;
+		float y2 = (float)maxY;
+		float z2 = (float)maxZ;
+		
+		pose.transformPosition(x1, y1, z1, min);
+		pose.transformDirection(x2 - x1, 0, 0, edgeX);
+		pose.transformDirection(0, y2 - y1, 0, edgeY);
+		pose.transformDirection(0, 0, z2 - z1, edgeZ);
+		
+		for(int i = 0; i < 8; i++)
+		{
+			float x = min.x;
+			float y = min.y;
+			float z = min.z;
+			
+			if((i & 1) != 0)
+			{
+				x += edgeX.x;
+				y += edgeX.y;
+				z += edgeX.z;
+			}
+			
+			if((i & 2) != 0)
+			{
+				x += edgeY.x;
+				y += edgeY.y;
+				z += edgeY.z;
+			}
+			
+			if((i & 4) != 0)
+			{
+				x += edgeZ.x;
+				y += edgeZ.y;
+				z += edgeZ.z;
+			}
+			
+			corners[i * 3] = x;
+			corners[i * 3 + 1] = y;
+			corners[i * 3 + 2] = z;
+		}
+	}
+	
+	private static void computeNormals(PoseStack.Pose entry)
+	{
+		for(int axis = 0; axis < 3; axis++)
+		{
+			entry.transformNormal(axis == 0 ? 1 : 0, axis == 1 ? 1 : 0,
+				axis == 2 ? 1 : 0, normal);
+			normals[axis * 3] = normal.x;
+			normals[axis * 3 + 1] = normal.y;
+			normals[axis * 3 + 2] = normal.z;
+		}
+	}
+}
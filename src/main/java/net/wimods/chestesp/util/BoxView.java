@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.util;
+
+import java.util.List;
+
+import net.minecraft.world.phys.AABB;
+
+/**
+ * The read-only part of {@link BoxStore}. Classes that keep their boxes in a
+ * store, along with other data that depends on the order of the boxes, hand
+ * out this type instead of the store itself, so that nothing else can add,
+ * remove or move boxes behind their back.
+ */
+public interface BoxView
+{
+	int size();
+	
+	boolean isEmpty();
+	
+	/**
+	 * Returns true if the box at the given index has exactly the same
+	 * coordinates as {@code box}.
+	 */
+	boolean equals(int index, AABB box);
+	
+	/**
+	 * Creates a new {@link AABB} for the box at the given index. Prefer the
+	 * individual coordinate getters where performance matters.
+	 */
+	AABB get(int index);
+	
+	double getMinX(int index);
+	
+	double getMinY(int index);
+	
+	double getMinZ(int index);
+	
+	double getMaxX(int index);
+	
+	double getMaxY(int index);
+	
+	double getMaxZ(int index);
+	
+	double getCenterX(int index);
+	
+	double getCenterY(int index);
+	
+	double getCenterZ(int index);
+	
+	/**
+	 * Returns a read-only {@link List} view of the boxes, for code that still
+	 * works with {@link AABB} objects. Every {@code get()} call on the view
+	 * creates a new box.
+	 */
+	List<AABB> asList();
+}
@@ -7,12 +7,7 @@
  */
 package net.wimods.chestesp.util;
 
-import java.util.Objects;
-import java.util.stream.Stream;
 import net.minecraft.client.Minecraft;
-import net.minecraft.world.level.ChunkPos;
-import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.chunk.LevelChunk;
 
 public enum ChunkUtils
 {
@@ -20,44 +15,12 @@ public enum ChunkUtils
 	
 	private static final Minecraft MC = Minecraft.getInstance();
 	
-	public static Stream<BlockEntity> getLoadedBlockEntities()
+	/**
+	 * Returns how many chunks around the player (excluding the player's own
+	 * chunk) can be loaded in each direction.
+	 */
+	public static int getRadius()
 	{
-		return getLoadedChunks()
-			.flatMap(chunk -> chunk.getBlockEntities().values().stream());
+		return Math.max(2, MC.options.getEffectiveRenderDistance()) + 3;
 	}
-	
-	public static Stream<LevelChunk> getLoadedChunks()
-	{
-		int radius = Math.max(2, MC.options.getEffectiveRenderDistance()) + 3;
-		int diameter = radius * 2 + 1;
-		
-		ChunkPos center = MC.player.chunkPosition();
-		ChunkPos min = new ChunkPos(center.x() - radius, center.z() - radius);
-		ChunkPos max = new ChunkPos(center.x() + radius, center.z() + radius);
-		
-		Stream<LevelChunk> stream = Stream.<ChunkPos> iterate(min, pos -> {
-			
-			int x = pos.x();
-			int z = pos.z();
-			
-			x++;
-			
-			if(x > max.x())
-			{
-				x = min.x();
-				z++;
-			}
-			
-			if(z > max.z())
-				throw new IllegalStateException("Stream limit didn't work.");
-			
-			return new ChunkPos(x, z);
-			
-		}).limit(diameter * diameter)
-			.filter(c -> MC.level.hasChunk(c.x(), c.z()))
-			.map(c -> MC.level.getChunk(c.x(), c.z())).filter(Objects::nonNull);
-		
-		return stream;
-	}
-	
 }
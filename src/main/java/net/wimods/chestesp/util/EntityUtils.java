@@ -60,4 +60,44 @@ public enum EntityUtils
 		Vec3 offset = getLerpedPos(e, partialTicks).subtract(e.position());
 		return e.getBoundingBox().move(offset);
 	}
+	
+	/**
+	 * Same as {@link #getLerpedBox(Entity, float)}, but adds the box directly
+	 * to {@code boxes} instead of creating any objects. This runs for every
+	 * tracked entity in every frame, so it must not allocate.
+	 */
+	public static void addLerpedBox(Entity e, float partialTicks,
+		BoxStore boxes)
+	{
+		AABB box = e.getBoundingBox();
+		
+		// When an entity is removed, it stops moving and its lastRenderX/Y/Z
+		// values are no longer updated.
+		if(e.isRemoved())
+		{
+			boxes.add(box);
+			return;
+		}
+		
+		addLerpedBox(box, e.xOld, e.yOld, e.zOld, e.getX(), e.getY(), e.getZ(),
+			partialTicks, boxes);
+	}
+	
+	/**
+	 * Moves {@code box} from the current position {@code x, y, z} to where it
+	 * is between the old position and the current position, then adds it to
+	 * {@code boxes}. This is the part of
+	 * {@link #addLerpedBox(Entity, float, BoxStore)} that doesn't need an
+	 * entity.
+	 */
+	public static void addLerpedBox(AABB box, double xOld, double yOld,
+		double zOld, double x, double y, double z, float partialTicks,
+		BoxStore boxes)
+	{
+		double offsetX = Mth.lerp(partialTicks, xOld, x) - x;
+		double offsetY = Mth.lerp(partialTicks, yOld, y) - y;
+		double offsetZ = Mth.lerp(partialTicks, zOld, z) - z;
+		boxes.add(box.minX + offsetX, box.minY + offsetY, box.minZ + offsetZ,
+			box.maxX + offsetX, box.maxY + offsetY, box.maxZ + offsetZ);
+	}
 }
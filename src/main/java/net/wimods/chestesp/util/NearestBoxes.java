@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.util;
+
+/**
+ * Keeps only the boxes that are closest to a point, without sorting all of
+ * them. A bounded max-heap holds the distances of the nearest boxes seen so
+ * far, so keeping the nearest N of M boxes takes O(M log N) time, and stores
+ * that are already small enough are left alone right away.
+ *
+ * <p>
+ * Boxes are removed in place, so the order of the remaining boxes changes.
+ * Doesn't allocate anything once the heap is large enough. Must only be used
+ * on the render thread.
+ */
+public enum NearestBoxes
+{
+	;
+	
+	/**
+	 * The highest limit that can be set in the config. A limit this high
+	 * turns limiting off, so no boxes are ever removed.
+	 */
+	public static final int UNLIMITED = 65536;
+	
+	private static final BoxStore[] single = new BoxStore[1];
+	private static double[] heap = new double[16];
+	private static int heapSize;
+	
+	/**
+	 * Removes the boxes that are farthest away from the given point until at
+	 * most {@code limit} are left. Returns how many boxes were removed.
+	 */
+	public static int limit(BoxStore boxes, double x, double y, double z,
+		int limit)
+	{
+		single[0] = boxes;
+		int removed = limitTotal(single, x, y, z, limit);
+		single[0] = null;
+		return removed;
+	}
+	
+	/**
+	 * Removes the boxes that are farthest away from the given point from any
+	 * of the given stores, until at most {@code limit} are left in total.
+	 * Returns how many boxes were removed.
+	 */
+	public static int limitTotal(BoxStore[] stores, double x, double y,
+		double z, int limit)
+	{
+		if(limit >= UNLIMITED)
+			return 0;
+		
+		int total = 0;
+		for(BoxStore boxes : stores)
+			total += boxes.size();
+		
+		if(total <= limit)
+			return 0;
+		
+		if(limit <= 0)
+		{
+			for(BoxStore boxes : stores)
+				boxes.clear();
+			
+			return total;
+		}
+		
+		double maxDistanceSq = findMaxDistanceSq(stores, x, y, z, limit);
+		
+		// boxes at exactly the cut-off distance are only kept while there is
+		// room for them
+		int closer = 0;
+		for(int i = 0; i < heapSize; i++)
+			if(heap[i] < maxDistanceSq)
+				closer++;
+		int ties = limit - closer;
+		
+		// Going backwards means that the box swapRemove() moves into the
+		// freed slot has already been checked.
+		for(BoxStore boxes : stores)
+			for(int i = boxes.size() - 1; i >= 0; i--)
+			{
+				double distanceSq = getDistanceSq(boxes, i, x, y, z);
+				if(distanceSq < maxDistanceSq)
+					continue;
+				
+				if(distanceSq == maxDistanceSq && ties > 0)
+				{
+					ties--;
+					continue;
+				}
+				
+				boxes.swapRemove(i);
+			}
+		
+		return total - limit;
+	}
+	
+	/**
+	 * Returns the distance of the {@code limit}-th closest box, leaving the
+	 * distances of the {@code limit} closest boxes in the heap.
+	 */
+	private static double findMaxDistanceSq(BoxStore[] stores, double x,
+		double y, double z, int limit)
+	{
+		if(heap.length < limit)
+			heap = new double[Math.max(limit, heap.length * 2)];
+		
+		heapSize = 0;
+		for(BoxStore boxes : stores)
+			for(int i = 0; i < boxes.size(); i++)
+			{
+				double distanceSq = getDistanceSq(boxes, i, x, y, z);
+				if(heapSize < limit)
+					push(distanceSq);
+				else if(distanceSq < heap[0])
+					replaceTop(distanceSq);
+			}
+		
+		return heap[0];
+	}
+	
+	private static void push(double value)
+	{
+		int i = heapSize++;
+		while(i > 0)
+		{
+			int parent = (i - 1) / 2;
+			if(heap[parent] >= value)
+				break;
+			
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		
+		heap[i] = value;
+	}
+	
+	private static void replaceTop(double value)
+	{
+		int i = 0;
+		while(true)
+		{
+			int child = i * 2 + 1;
+			if(child >= heapSize)
+				break;
+			
+			if(child + 1 < heapSize && heap[child + 1] > heap[child])
+				child++;
+			
+			if(heap[child] <= value)
+				break;
+			
+			heap[i] = heap[child];
+			i = child;
+		}
+		
+		heap[i] = value;
+	}
+	
+	private static double getDistanceSq(BoxStore boxes, int i, double x,
+		double y, double z)
+	{
+		double dx = boxes.getCenterX(i) - x;
+		double dy = boxes.getCenterY(i) - y;
+		double dz = boxes.getCenterZ(i) - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+}
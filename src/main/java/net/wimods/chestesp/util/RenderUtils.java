@@ -20,6 +20,7 @@ import net.minecraft.client.renderer.rendertype.RenderType;
 import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.Vec3;
 import net.wimods.chestesp.ChestEspRenderLayers;
+import net.wimods.chestesp.ChestEspStats;
 
 public enum RenderUtils
 {
@@ -27,6 +28,11 @@ public enum RenderUtils
 	
 	private static final Minecraft MC = Minecraft.getInstance();
 	
+	// scratch state for the render thread, so that tracers don't allocate
+	private static final Vector3f tracerOrigin = new Vector3f();
+	private static final Vector3f lineNormal = new Vector3f();
+	private static final Vector3f linePos = new Vector3f();
+	
 	public static Vec3 getCameraPos()
 	{
 		Camera camera = MC.gameRenderer.mainCamera();
@@ -36,11 +42,12 @@ public enum RenderUtils
 		return camera.position();
 	}
 	
-	private static Vec3 getTracerOrigin(float partialTicks)
+	private static Vector3f getTracerOrigin(float partialTicks)
 	{
-		Vec3 start = RotationUtils.getClientLookVec(partialTicks).scale(10);
+		Vector3f start =
+			RotationUtils.getClientLookVec(partialTicks, tracerOrigin).mul(10);
 		if(MC.options.getCameraType() == CameraType.THIRD_PERSON_FRONT)
-			start = start.reverse();
+			start.negate();
 		
 		return start;
 	}
@@ -48,16 +55,46 @@ public enum RenderUtils
 	public static void drawTracers(PoseStack matrices, float partialTicks,
 		List<Vec3> ends, int color, boolean depthTest)
 	{
-		WiModsBufferSource bs = new WiModsBufferSource();
-		RenderType layer = ChestEspRenderLayers.getLines(depthTest);
-		VertexConsumer buffer = bs.getBuffer(layer);
-		
-		Vec3 start = getTracerOrigin(partialTicks);
-		Vec3 offset = getCameraPos().reverse();
-		for(Vec3 end : ends)
-			drawLine(matrices, buffer, start, end.add(offset), color);
-		
-		bs.uploadAndDraw();
+		try(WiModsBufferSource bs = new WiModsBufferSource())
+		{
+			RenderType layer = ChestEspRenderLayers.getLines(depthTest);
+			VertexConsumer buffer = bs.getBuffer(layer);
+			
+			Pose entry = matrices.last();
+			Vector3f start = getTracerOrigin(partialTicks);
+			Vec3 camPos = getCameraPos();
+			for(int i = 0; i < ends.size(); i++)
+			{
+				Vec3 end = ends.get(i);
+				drawLine(entry, buffer, start.x, start.y, start.z,
+					(float)(end.x - camPos.x), (float)(end.y - camPos.y),
+					(float)(end.z - camPos.z), color);
+			}
+			
+			bs.uploadAndDraw();
+		}
+	}
+	
+	/**
+	 * Like {@link #drawTracers(PoseStack, float, List, int, boolean)}, but
+	 * adds the tracers to an existing buffer, takes the boxes directly and
+	 * draws the tracers to their centers, so that no list of end points has
+	 * to be built.
+	 */
+	public static void drawBoxTracers(PoseStack matrices,
+		VertexConsumer buffer, float partialTicks, BoxView boxes, int color)
+	{
+		Pose entry = matrices.last();
+		Vector3f start = getTracerOrigin(partialTicks);
+		Vec3 camPos = getCameraPos();
+		for(int i = 0; i < boxes.size(); i++)
+		{
+			double endX = boxes.getCenterX(i) - camPos.x;
+			double endY = boxes.getCenterY(i) - camPos.y;
+			double endZ = boxes.getCenterZ(i) - camPos.z;
+			drawLine(entry, buffer, start.x, start.y, start.z, (float)endX,
+				(float)endY, (float)endZ, color);
+		}
 	}
 	
 	public static void drawLine(PoseStack matrices, VertexConsumer buffer,
@@ -76,44 +113,66 @@ public enum RenderUtils
 	public static void drawLine(PoseStack.Pose entry, VertexConsumer buffer,
 		float x1, float y1, float z1, float x2, float y2, float z2, int color)
 	{
-		Vector3f normal = new Vector3f(x2, y2, z2).sub(x1, y1, z1).normalize();
-		buffer.addVertex(entry, x1, y1, z1).setColor(color)
-			.setNormal(entry, normal).setLineWidth(2);
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		float dz = z2 - z1;
+		float length = (float)Math.sqrt(dx * dx + dy * dy + dz * dz);
+		float nx = dx / length;
+		float ny = dy / length;
+		float nz = dz / length;
+		
+		// The Pose overloads of addVertex() and setNormal() allocate a new
+		// vector for every call, so the transformations are done here.
+		Vector3f normal = entry.transformNormal(nx, ny, nz, lineNormal);
+		addLineVertex(entry, buffer, x1, y1, z1, normal, color);
 		
 		// If the line goes through the screen, add another vertex there. This
 		// works around a bug in Minecraft's line shader.
-		float t = new Vector3f(x1, y1, z1).negate().dot(normal);
-		float length = new Vector3f(x2, y2, z2).sub(x1, y1, z1).length();
+		float t = -(x1 * nx + y1 * ny + z1 * nz);
 		if(t > 0 && t < length)
 		{
-			Vector3f closeToCam = new Vector3f(normal).mul(t).add(x1, y1, z1);
-			buffer.addVertex(entry, closeToCam).setColor(color)
-				.setNormal(entry, normal).setLineWidth(2);
-			buffer.addVertex(entry, closeToCam).setColor(color)
-				.setNormal(entry, normal).setLineWidth(2);
+			float cx = x1 + nx * t;
+			float cy = y1 + ny * t;
+			float cz = z1 + nz * t;
+			addLineVertex(entry, buffer, cx, cy, cz, normal, color);
+			addLineVertex(entry, buffer, cx, cy, cz, normal, color);
 		}
 		
-		buffer.addVertex(entry, x2, y2, z2).setColor(color)
-			.setNormal(entry, normal).setLineWidth(2);
+		addLineVertex(entry, buffer, x2, y2, z2, normal, color);
+	}
+	
+	private static void addLineVertex(PoseStack.Pose entry,
+		VertexConsumer buffer, float x, float y, float z, Vector3f normal,
+		int color)
+	{
+		Vector3f pos = entry.pose().transformPosition(x, y, z, linePos);
+		ChestEspStats.countLineVertices(1);
+		buffer.addVertex(pos.x, pos.y, pos.z).setColor(color)
+			.setNormal(normal.x, normal.y, normal.z).setLineWidth(2);
 	}
 	
 	public static void drawSolidBoxes(PoseStack matrices, List<AABB> boxes,
 		int color, boolean depthTest)
 	{
-		WiModsBufferSource bs = new WiModsBufferSource();
-		RenderType layer = ChestEspRenderLayers.getQuads(depthTest);
-		VertexConsumer buffer = bs.getBuffer(layer);
-		
-		Vec3 camOffset = getCameraPos().reverse();
-		for(AABB box : boxes)
-			drawSolidBox(matrices, buffer, box.move(camOffset), color);
-		
-		bs.uploadAndDraw();
+		try(WiModsBufferSource bs = new WiModsBufferSource())
+		{
+			RenderType layer = ChestEspRenderLayers.getQuads(depthTest);
+			VertexConsumer buffer = bs.getBuffer(layer);
+			
+			Pose entry = matrices.last();
+			Vec3 camPos = getCameraPos();
+			for(int i = 0; i < boxes.size(); i++)
+				BoxTemplate.drawSolidBox(entry, buffer, boxes.get(i),
+					-camPos.x, -camPos.y, -camPos.z, color);
+			
+			bs.uploadAndDraw();
+		}
 	}
 	
 	public static void drawSolidBox(PoseStack matrices, VertexConsumer buffer,
 		AABB box, int color)
 	{
+		ChestEspStats.countQuadVertices(24);
 		PoseStack.Pose entry = matrices.last();
 		float x1 = (float)box.minX;
 		float y1 = (float)box.minY;
@@ -156,20 +215,25 @@ public enum RenderUtils
 	public static void drawOutlinedBoxes(PoseStack matrices, List<AABB> boxes,
 		int color, boolean depthTest)
 	{
-		WiModsBufferSource bs = new WiModsBufferSource();
-		RenderType layer = ChestEspRenderLayers.getLines(depthTest);
-		VertexConsumer buffer = bs.getBuffer(layer);
-		
-		Vec3 camOffset = getCameraPos().reverse();
-		for(AABB box : boxes)
-			drawOutlinedBox(matrices, buffer, box.move(camOffset), color);
-		
-		bs.uploadAndDraw();
+		try(WiModsBufferSource bs = new WiModsBufferSource())
+		{
+			RenderType layer = ChestEspRenderLayers.getLines(depthTest);
+			VertexConsumer buffer = bs.getBuffer(layer);
+			
+			Pose entry = matrices.last();
+			Vec3 camPos = getCameraPos();
+			for(int i = 0; i < boxes.size(); i++)
+				BoxTemplate.drawOutlinedBox(entry, buffer, boxes.get(i),
+					-camPos.x, -camPos.y, -camPos.z, color);
+			
+			bs.uploadAndDraw();
+		}
 	}
 	
 	public static void drawOutlinedBox(PoseStack matrices,
 		VertexConsumer buffer, AABB box, int color)
 	{
+		ChestEspStats.countLineVertices(24);
 		PoseStack.Pose entry = matrices.last();
 		float x1 = (float)box.minX;
 		float y1 = (float)box.minY;
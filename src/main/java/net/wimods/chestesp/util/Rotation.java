@@ -7,12 +7,24 @@
  */
 package net.wimods.chestesp.util;
 
+import org.joml.Vector3f;
+
 import net.minecraft.util.Mth;
 import net.minecraft.world.phys.Vec3;
 
 public record Rotation(float yaw, float pitch)
 {
 	public Vec3 toLookVec()
+	{
+		Vector3f lookVec = toLookVec(yaw, pitch, new Vector3f());
+		return new Vec3(lookVec.x, lookVec.y, lookVec.z);
+	}
+	
+	/**
+	 * Writes the look vector for the given rotation into {@code dest}
+	 * without allocating anything.
+	 */
+	public static Vector3f toLookVec(float yaw, float pitch, Vector3f dest)
 	{
 		float radPerDeg = Mth.DEG_TO_RAD;
 		float pi = Mth.PI;
@@ -25,6 +37,6 @@ public record Rotation(float yaw, float pitch)
 		float nCosPitch = -Mth.cos(adjustedPitch);
 		float sinPitch = Mth.sin(adjustedPitch);
 		
-		return new Vec3(sinYaw * nCosPitch, sinPitch, cosYaw * nCosPitch);
+		return dest.set(sinYaw * nCosPitch, sinPitch, cosYaw * nCosPitch);
 	}
 }
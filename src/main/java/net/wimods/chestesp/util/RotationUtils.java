@@ -7,6 +7,8 @@
  */
 package net.wimods.chestesp.util;
 
+import org.joml.Vector3f;
+
 import net.minecraft.client.Minecraft;
 import net.minecraft.world.phys.Vec3;
 
@@ -22,4 +24,15 @@ public enum RotationUtils
 		float pitch = MC.player.getViewXRot(partialTicks);
 		return new Rotation(yaw, pitch).toLookVec();
 	}
+	
+	/**
+	 * Like {@link #getClientLookVec(float)}, but writes the result into
+	 * {@code dest} instead of allocating a new vector.
+	 */
+	public static Vector3f getClientLookVec(float partialTicks, Vector3f dest)
+	{
+		float yaw = MC.player.getViewYRot(partialTicks);
+		float pitch = MC.player.getViewXRot(partialTicks);
+		return Rotation.toLookVec(yaw, pitch, dest);
+	}
 }
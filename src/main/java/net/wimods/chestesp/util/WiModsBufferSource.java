@@ -7,40 +7,30 @@
  */
 package net.wimods.chestesp.util;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.VertexConsumer;
 
 import net.minecraft.client.renderer.StagedVertexBuffer;
 import net.minecraft.client.renderer.rendertype.RenderType;
+import net.wimods.chestesp.ChestEspStats;
 
 /**
  * Simple wrapper around {@link StagedVertexBuffer} to replace Minecraft's
  * {@code MultiBufferSource} which was removed in 26.2-snapshot-5.
+ *
+ * <p>
+ * An instance can be reused for any number of {@link #uploadAndDraw()}
+ * calls, so that the staging memory doesn't have to be allocated again every
+ * frame. Call {@link #close()} once it's no longer needed.
  */
-public final class WiModsBufferSource
+public final class WiModsBufferSource implements AutoCloseable
 {
 	private final StagedVertexBuffer stagedBuffer = new StagedVertexBuffer(
 		() -> "WiModsBufferSource", RenderType.BIG_BUFFER_SIZE);
-	private final List<StagedVertexBuffer.Draw> draws = new ArrayList<>();
-	private final List<RenderType> drawTypes = new ArrayList<>();
+	private final WiModsStagedDraws draws = new WiModsStagedDraws(stagedBuffer);
 	
 	public VertexConsumer getBuffer(RenderType renderType)
 	{
-		if(!drawTypes.isEmpty() && drawTypes.getLast() == renderType
-			&& renderType.canConsolidateConsecutiveGeometry())
-			return stagedBuffer.getVertexBuilder(draws.getLast());
-		
-		StagedVertexBuffer.Draw draw =
-			stagedBuffer.appendDraw(renderType.format(),
-				renderType.primitiveTopology(), renderType.sortOnUpload()
-					? RenderSystem.getProjectionType().vertexSorting() : null);
-		
-		draws.add(draw);
-		drawTypes.add(renderType);
-		return stagedBuffer.getVertexBuilder(draw);
+		return draws.getBuffer(renderType);
 	}
 	
 	public void uploadAndDraw()
@@ -53,23 +43,31 @@ public final class WiModsBufferSource
 			stagedBuffer.upload();
 			
 			for(int i = 0; i < draws.size(); i++)
-				draw(drawTypes.get(i), draws.get(i));
+				draw(draws.getType(i), draws.getDraw(i));
 			
 			stagedBuffer.endDraw();
 			
 		}finally
 		{
 			draws.clear();
-			drawTypes.clear();
-			stagedBuffer.close();
 		}
 	}
 	
+	@Override
+	public void close()
+	{
+		draws.clear();
+		stagedBuffer.close();
+	}
+	
 	private void draw(RenderType type, StagedVertexBuffer.Draw draw)
 	{
 		StagedVertexBuffer.ExecuteInfo info = stagedBuffer.getExecuteInfo(draw);
 		
-		if(info != null)
-			type.prepare().drawFromBuffer(info);
+		if(info == null)
+			return;
+		
+		type.prepare().drawFromBuffer(info);
+		ChestEspStats.countDrawCalls(1);
 	}
 }
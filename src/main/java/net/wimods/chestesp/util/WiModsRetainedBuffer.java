@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mojang.blaze3d.vertex.VertexConsumer;
+
+import net.minecraft.client.renderer.StagedVertexBuffer;
+import net.minecraft.client.renderer.rendertype.RenderType;
+import net.wimods.chestesp.ChestEspStats;
+
+/**
+ * Like {@link WiModsBufferSource}, but keeps the uploaded vertices on the GPU
+ * so that they can be drawn again in later frames without being rebuilt or
+ * uploaded again.
+ *
+ * <p>
+ * Usage: call {@link #reset()}, add vertices through
+ * {@link #getBuffer(RenderType)}, call {@link #upload()} once, then call
+ * {@link #draw()} as often as needed until the next {@link #reset()}.
+ */
+public final class WiModsRetainedBuffer implements AutoCloseable
+{
+	private final StagedVertexBuffer stagedBuffer;
+	private final WiModsStagedDraws draws;
+	private final List<StagedVertexBuffer.ExecuteInfo> executeInfos =
+		new ArrayList<>();
+	private boolean uploaded;
+	
+	public WiModsRetainedBuffer(String label)
+	{
+		stagedBuffer =
+			new StagedVertexBuffer(() -> label, RenderType.BIG_BUFFER_SIZE);
+		draws = new WiModsStagedDraws(stagedBuffer);
+	}
+	
+	public VertexConsumer getBuffer(RenderType renderType)
+	{
+		if(uploaded)
+			throw new IllegalStateException(
+				"Buffer was already uploaded. Call reset() first.");
+		
+		return draws.getBuffer(renderType);
+	}
+	
+	public void upload()
+	{
+		if(uploaded || draws.isEmpty())
+			return;
+		
+		stagedBuffer.upload();
+		for(int i = 0; i < draws.size(); i++)
+			executeInfos.add(stagedBuffer.getExecuteInfo(draws.getDraw(i)));
+		
+		uploaded = true;
+	}
+	
+	public void draw()
+	{
+		for(int i = 0; i < executeInfos.size(); i++)
+		{
+			StagedVertexBuffer.ExecuteInfo info = executeInfos.get(i);
+			if(info == null)
+				continue;
+			
+			draws.getType(i).prepare().drawFromBuffer(info);
+			ChestEspStats.countDrawCalls(1);
+		}
+	}
+	
+	/**
+	 * Discards the current contents so that new vertices can be added.
+	 */
+	public void reset()
+	{
+		if(uploaded)
+			stagedBuffer.endDraw();
+		
+		draws.clear();
+		executeInfos.clear();
+		uploaded = false;
+	}
+	
+	public boolean isEmpty()
+	{
+		return executeInfos.isEmpty();
+	}
+	
+	@Override
+	public void close()
+	{
+		reset();
+		stagedBuffer.close();
+	}
+}
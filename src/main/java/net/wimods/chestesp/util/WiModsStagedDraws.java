@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023-2026 Wurst-Imperium and contributors.
+ *
+ * This source code is subject to the terms of the GNU General Public
+ * License, version 3. If a copy of the GPL was not distributed with this
+ * file, You can obtain one at: https://www.gnu.org/licenses/gpl-3.0.txt
+ */
+package net.wimods.chestesp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+
+import net.minecraft.client.renderer.StagedVertexBuffer;
+import net.minecraft.client.renderer.rendertype.RenderType;
+
+/**
+ * The draws that have been appended to a {@link StagedVertexBuffer}, along
+ * with their render types. Used by {@link WiModsBufferSource} and
+ * {@link WiModsRetainedBuffer}, which only differ in how long they keep the
+ * uploaded vertices.
+ */
+final class WiModsStagedDraws
+{
+	private final StagedVertexBuffer stagedBuffer;
+	private final List<StagedVertexBuffer.Draw> draws = new ArrayList<>();
+	private final List<RenderType> types = new ArrayList<>();
+	
+	WiModsStagedDraws(StagedVertexBuffer stagedBuffer)
+	{
+		this.stagedBuffer = stagedBuffer;
+	}
+	
+	/**
+	 * Returns a vertex builder for the given render type. Consecutive
+	 * geometry of the same type goes into the same draw where the type
+	 * allows it.
+	 */
+	VertexConsumer getBuffer(RenderType renderType)
+	{
+		if(!types.isEmpty() && types.getLast() == renderType
+			&& renderType.canConsolidateConsecutiveGeometry())
+			return stagedBuffer.getVertexBuilder(draws.getLast());
+		
+		StagedVertexBuffer.Draw draw =
+			stagedBuffer.appendDraw(renderType.format(),
+				renderType.primitiveTopology(), renderType.sortOnUpload()
+					? RenderSystem.getProjectionType().vertexSorting() : null);
+		
+		draws.add(draw);
+		types.add(renderType);
+		return stagedBuffer.getVertexBuilder(draw);
+	}
+	
+	int size()
+	{
+		return draws.size();
+	}
+	
+	boolean isEmpty()
+	{
+		return draws.isEmpty();
+	}
+	
+	StagedVertexBuffer.Draw getDraw(int index)
+	{
+		return draws.get(index);
+	}
+	
+	RenderType getType(int index)
+	{
+		return types.get(index);
+	}
+	
+	void clear()
+	{
+		draws.clear();
+		types.clear();
+	}
+}